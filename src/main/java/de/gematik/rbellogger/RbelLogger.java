@@ -26,12 +26,15 @@ import de.gematik.rbellogger.converter.RbelX5cKeyReader;
 import de.gematik.rbellogger.converter.listener.RbelBundledMessagesPlugin;
 import de.gematik.rbellogger.converter.listener.RbelFileAppenderPlugin;
 import de.gematik.rbellogger.data.RbelElement;
+import de.gematik.rbellogger.data.RbelMessageQuery;
 import de.gematik.rbellogger.key.RbelKeyManager;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import de.gematik.rbellogger.modifier.RbelModifier;
+import de.gematik.rbellogger.util.RbelMessageSearch;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
@@ -60,6 +63,9 @@ public class RbelLogger {
             .manageBuffer(configuration.isManageBuffer())
             .rbelBufferSizeInMb(configuration.getRbelBufferSizeInMb())
             .skipParsingWhenMessageLargerThanMb(configuration.getSkipParsingWhenMessageLargerThanMb())
+            .conversionThreads(configuration.getConversionThreads())
+            .conversionQueueSize(configuration.getConversionQueueSize())
+            .activateMessageIndex(configuration.isActivateMessageIndex())
             .build();
 
         rbelConverter.registerListener(new RbelX5cKeyReader());
@@ -105,6 +111,43 @@ public class RbelLogger {
         return rbelConverter.getMessageHistory();
     }
 
+    /**
+     * The first {@code limit} messages of the history matching the JEXL expression, in sequence order. Evaluated in
+     * parallel on a snapshot of the history, messages added during the search are not considered.
+     */
+    public List<RbelElement> findMessages(String jexlCriterion, int limit) {
+        return RbelMessageSearch.forJexlExpression(jexlCriterion)
+            .findMatches(getMessageHistorySnapshot(), limit);
+    }
+
+    /**
+     * Like {@link #findMessages(String, int)}, matching all messages in which the RbelPath resolves to an element.
+     */
+    public List<RbelElement> findMessagesWithRbelPath(String rbelPath, int limit) {
+        return RbelMessageSearch.forRbelPath(rbelPath)
+            .findMatches(getMessageHistorySnapshot(), limit);
+    }
+
+    /**
+     * Like {@link #findMessages(String, int)} with an arbitrary, thread-safe criterion.
+     */
+    public List<RbelElement> findMessages(Predicate<RbelElement> criterion, int limit) {
+        return RbelMessageSearch.forPredicate(criterion)
+            .findMatches(getMessageHistorySnapshot(), limit);
+    }
+
+    /**
+     * Messages matching the metadata query, answered from the message index if it is activated
+     * ({@link RbelConfiguration#isActivateMessageIndex()}).
+     */
+    public List<RbelElement> findMessages(RbelMessageQuery query) {
+        return rbelConverter.findMessages(query);
+    }
+
+    private List<RbelElement> getMessageHistorySnapshot() {
+        return rbelConverter.getMessageHistory().snapshot();
+    }
+
     public void addBundleCriterion(RbelBundleCriterion rbelBundleCriterion) {
         rbelConverter.getBundleCriterionList().add(rbelBundleCriterion);
     }
@@ -16,13 +16,17 @@
 
 package de.gematik.rbellogger;
 
+import de.gematik.rbellogger.data.RbelElementIdStrategy;
+
 public class RbelOptions {
     public static boolean ACTIVATE_RBEL_PATH_DEBUGGING = false;
+    public static boolean ACTIVATE_RBEL_PATH_INDEX = true;
     public static int RBEL_PATH_TREE_VIEW_MINIMUM_DEPTH = 3;
     public static int RBEL_PATH_TREE_VIEW_VALUE_OUTPUT_LENGTH = 50;
     public static boolean ENABLE_ANSI_COLORS = true;
     public static boolean ACTIVATE_JEXL_DEBUGGING = false;
     public static boolean ACTIVATE_FACETS_PRINTING = true;
+    public static RbelElementIdStrategy ELEMENT_ID_STRATEGY = RbelElementIdStrategy.UUIDS_FOR_MESSAGES_ONLY;
 
     public static void activateJexlDebugging() {
         ACTIVATE_JEXL_DEBUGGING = true;
@@ -48,6 +52,14 @@ public class RbelOptions {
         ACTIVATE_RBEL_PATH_DEBUGGING = false;
     }
 
+    public static void activateRbelPathIndex() {
+        ACTIVATE_RBEL_PATH_INDEX = true;
+    }
+
+    public static void deactivateRbelPathIndex() {
+        ACTIVATE_RBEL_PATH_INDEX = false;
+    }
+
     public static void activateFacetsPrinting() {
         ACTIVATE_FACETS_PRINTING = true;
     }
@@ -55,4 +67,8 @@ public class RbelOptions {
     public static void deactivateFacetsPrinting() {
         ACTIVATE_FACETS_PRINTING = false;
     }
+
+    public static void useElementIdStrategy(RbelElementIdStrategy elementIdStrategy) {
+        ELEMENT_ID_STRATEGY = elementIdStrategy;
+    }
 }
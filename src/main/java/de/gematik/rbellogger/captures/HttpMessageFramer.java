@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.captures;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Finds the boundaries of HTTP/1.x messages in the byte stream of one direction of a TCP connection. The parse state
+ * (position of the header end, body length, chunk being read) is kept between calls, so every byte is looked at once
+ * no matter how many segments a message is split into. Several messages in one stream (keep-alive, pipelining) are
+ * framed one after another.
+ * <p>
+ * The body length is taken from {@code Content-Length} or the chunked transfer encoding. Requests without either have
+ * no body; such responses are delimited by the end of the connection and stay open until {@link #flush(TcpStream)}
+ * is called. Streams not starting with an HTTP message are discarded until a segment starts with one. Not
+ * thread-safe.
+ */
+@Slf4j
+public class HttpMessageFramer {
+
+    private static final String[] MESSAGE_STARTS = {"HTTP/", "GET ", "POST ", "PUT ", "DELETE "};
+    private static final String CONTENT_LENGTH_HEADER = "Content-Length:";
+
+    private enum State {
+        START_LINE, HEADERS, BODY, UNTIL_CLOSE, CHUNK_SIZE, CHUNK_DATA, TRAILERS
+    }
+
+    private State state = State.START_LINE;
+    /**
+     * Offset in the stream buffer up to which the bytes were inspected
+     */
+    private int position;
+    private long bodyEnd;
+
+    /**
+     * Removes all complete messages from the start of the stream buffer.
+     *
+     * @return the raw messages, in stream order
+     */
+    public List<byte[]> extractCompletedMessages(TcpStream stream) {
+        final List<byte[]> result = new ArrayList<>();
+        while (true) {
+            final int messageEnd = advance(stream);
+            if (messageEnd < 0) {
+                return result;
+            }
+            result.add(stream.consume(messageEnd));
+            state = State.START_LINE;
+            position = 0;
+        }
+    }
+
+    /**
+     * Completes the message delimited by the end of the connection, to be called once the stream has ended (FIN, RST
+     * or idle connection). Incomplete messages with a known length are kept as they are.
+     *
+     * @return the message with all buffered bytes as body, empty if no such message is open
+     */
+    public Optional<byte[]> flush(TcpStream stream) {
+        if (state != State.UNTIL_CLOSE) {
+            return Optional.empty();
+        }
+        state = State.START_LINE;
+        position = 0;
+        return Optional.of(stream.consume(stream.getBufferedLength()));
+    }
+
+    /**
+     * @return the length of the message at the start of the buffer, -1 if it is not yet complete
+     */
+    private int advance(TcpStream stream) {
+        while (true) {
+            final int length = stream.getBufferedLength();
+            switch (state) {
+                case START_LINE:
+                    if (!findMessageStart(stream)) {
+                        return -1;
+                    }
+                    state = State.HEADERS;
+                    break;
+                case HEADERS:
+                    final int headerEnd = indexOfEmptyLine(stream, position);
+                    if (headerEnd < 0) {
+                        position = Math.max(0, length - 3);
+                        return -1;
+                    }
+                    position = headerEnd;
+                    final String header = new String(readBytes(stream, 0, headerEnd), StandardCharsets.US_ASCII);
+                    if (isChunked(header)) {
+                        state = State.CHUNK_SIZE;
+                    } else {
+                        final Optional<Long> bodyLength = findBodyLength(header);
+                        bodyEnd = headerEnd + bodyLength.orElse(0L);
+                        state = bodyLength.isPresent() ? State.BODY : State.UNTIL_CLOSE;
+                    }
+                    break;
+                case BODY:
+                    if (length < bodyEnd) {
+                        return -1;
+                    }
+                    return (int) bodyEnd;
+                case UNTIL_CLOSE:
+                    return -1;
+                case CHUNK_SIZE:
+                    final int chunkSizeLineEnd = indexOfLineEnd(stream, position);
+                    if (chunkSizeLineEnd < 0) {
+                        return -1;
+                    }
+                    final long chunkSize = parseChunkSize(readBytes(stream, position, chunkSizeLineEnd));
+                    if (chunkSize < 0) {
+                        log.trace("Invalid chunk size, using all {} buffered bytes as message", length);
+                        return length;
+                    }
+                    position = chunkSizeLineEnd + 2;
+                    if (chunkSize == 0) {
+                        state = State.TRAILERS;
+                    } else {
+                        bodyEnd = position + chunkSize + 2;
+                        state = State.CHUNK_DATA;
+                    }
+                    break;
+                case CHUNK_DATA:
+                    if (length < bodyEnd) {
+                        return -1;
+                    }
+                    position = (int) bodyEnd;
+                    state = State.CHUNK_SIZE;
+                    break;
+                case TRAILERS:
+                    final int trailerLineEnd = indexOfLineEnd(stream, position);
+                    if (trailerLineEnd < 0) {
+                        return -1;
+                    }
+                    if (trailerLineEnd == position) {
+                        return trailerLineEnd + 2;
+                    }
+                    position = trailerLineEnd + 2;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown state " + state);
+            }
+        }
+    }
+
+    /**
+     * Skips line breaks left between messages and drops data which does not start with an HTTP message.
+     */
+    private boolean findMessageStart(TcpStream stream) {
+        int skipped = 0;
+        while (skipped < stream.getBufferedLength()
+            && (stream.getBufferedByte(skipped) == '\r' || stream.getBufferedByte(skipped) == '\n')) {
+            skipped++;
+        }
+        if (skipped > 0) {
+            stream.consume(skipped);
+        }
+        final int length = stream.getBufferedLength();
+        boolean prefixOfMessageStart = false;
+        for (String messageStart : MESSAGE_STARTS) {
+            final int comparedLength = Math.min(messageStart.length(), length);
+            if (startsWith(stream, messageStart, comparedLength)) {
+                if (comparedLength == messageStart.length()) {
+                    return true;
+                }
+                prefixOfMessageStart = true;
+            }
+        }
+        if (!prefixOfMessageStart && length > 0) {
+            log.trace("No HTTP-message recognized, dropping {} bytes", length);
+            stream.consume(length);
+        }
+        return false;
+    }
+
+    private static boolean startsWith(TcpStream stream, String prefix, int comparedLength) {
+        for (int i = 0; i < comparedLength; i++) {
+            if (stream.getBufferedByte(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the offset after the empty line ending the header, -1 if not yet received
+     */
+    private static int indexOfEmptyLine(TcpStream stream, int from) {
+        for (int i = from; i + 3 < stream.getBufferedLength(); i++) {
+            if (stream.getBufferedByte(i) == '\r' && stream.getBufferedByte(i + 1) == '\n'
+                && stream.getBufferedByte(i + 2) == '\r' && stream.getBufferedByte(i + 3) == '\n') {
+                return i + 4;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the offset of the next CRLF, -1 if not yet received
+     */
+    private static int indexOfLineEnd(TcpStream stream, int from) {
+        for (int i = from; i + 1 < stream.getBufferedLength(); i++) {
+            if (stream.getBufferedByte(i) == '\r' && stream.getBufferedByte(i + 1) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] readBytes(TcpStream stream, int from, int to) {
+        final byte[] result = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            result[i - from] = stream.getBufferedByte(i);
+        }
+        return result;
+    }
+
+    private static boolean isChunked(String header) {
+        return headerLines(header)
+            .anyMatch(line -> StringUtils.startsWithIgnoreCase(line, "Transfer-Encoding:")
+                && StringUtils.containsIgnoreCase(line, "chunked"));
+    }
+
+    /**
+     * @return empty if the body is delimited by the end of the connection
+     */
+    private static Optional<Long> findBodyLength(String header) {
+        final boolean response = header.startsWith("HTTP/");
+        if (response && hasNoBody(StringUtils.substringBetween(header, " ", " "))) {
+            return Optional.of(0L);
+        }
+        final Optional<Long> contentLength = headerLines(header)
+            .filter(line -> StringUtils.startsWithIgnoreCase(line, CONTENT_LENGTH_HEADER))
+            .map(line -> parseLength(line.substring(CONTENT_LENGTH_HEADER.length()).trim()))
+            .filter(value -> value >= 0)
+            .findFirst();
+        if (response) {
+            return contentLength;
+        }
+        return Optional.of(contentLength.orElse(0L));
+    }
+
+    private static boolean hasNoBody(String statusCode) {
+        return statusCode != null
+            && (statusCode.startsWith("1") || statusCode.equals("204") || statusCode.equals("304"));
+    }
+
+    private static Stream<String> headerLines(String header) {
+        return Arrays.stream(header.split("\r\n")).skip(1);
+    }
+
+    private static long parseLength(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseChunkSize(byte[] line) {
+        final String size = StringUtils.substringBefore(new String(line, StandardCharsets.US_ASCII), ";").trim();
+        try {
+            return Long.parseLong(size, 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -19,35 +19,37 @@ package de.gematik.rbellogger.captures;
 import de.gematik.rbellogger.converter.RbelConverter;
 import de.gematik.rbellogger.data.RbelElement;
 import de.gematik.rbellogger.data.RbelHostname;
-import de.gematik.rbellogger.util.RbelException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.concurrent.*;
 import lombok.Builder;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.SystemUtils;
-import org.apache.commons.lang3.math.NumberUtils;
-import org.apache.commons.lang3.tuple.Pair;
 import org.pcap4j.core.BpfProgram.BpfCompileMode;
 import org.pcap4j.core.*;
 import org.pcap4j.core.PcapHandle.TimestampPrecision;
 import org.pcap4j.core.PcapNetworkInterface.PromiscuousMode;
 import org.pcap4j.packet.IpV4Packet;
+import org.pcap4j.packet.IpV6Packet;
 import org.pcap4j.packet.Packet;
-import org.pcap4j.packet.TcpPacket;
+import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.namednumber.DataLinkType;
 
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.File;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.TimeoutException;
-import java.util.stream.Stream;
 
 @Slf4j
 public class PCapCapture extends RbelCapturer {
 
+    public static final int DEFAULT_PACKET_RING_SIZE = 16_384;
+    private static final int INITIAL_RING_SLOT_SIZE = 2048;
+    private static final long MAXIMUM_RING_WAIT_MILLIS = 1;
+
     private String deviceName;
     private String pcapFile;
     private String filter;
@@ -55,20 +57,37 @@ public class PCapCapture extends RbelCapturer {
     private Thread captureThread;
     private PcapHandle handle;
     private PcapDumper dumper;
-    private List<TcpPacket> unhandledTcpRequests = new ArrayList<>();
-    private List<TcpPacket> unhandledTcpResponses = new ArrayList<>();
-    private int tcpServerPort = -1;
-    private int packetReceived = 0;
-    private int tcpPacketReceived = 0;
-
+    private final Duration flowIdleTimeout;
+    private final long maximumHeldBytes;
+    private final int packetRingSize;
+    private final int reassemblyThreads;
+    private PacketRing packetRing;
+    private final List<Thread> reassemblyThreadList = new ArrayList<>();
+    private final List<RBelPacketListener> packetListenerList = new ArrayList<>();
+    private ThreadPoolExecutor conversionExecutor;
+
+    /**
+     * @param flowIdleTimeout    connections without packets for this long (capture time) are dropped, defaults to
+     *                           {@link TcpFlowTable#DEFAULT_IDLE_TIMEOUT}
+     * @param maximumHeldBytes   limit for the bytes of incomplete messages held over all connections, defaults to
+     *                           {@link TcpFlowTable#DEFAULT_MAXIMUM_HELD_BYTES}
+     * @param packetRingSize     live capture only: number of packets buffered between the capture thread and the
+     *                           reassembly threads, defaults to {@link #DEFAULT_PACKET_RING_SIZE}
+     * @param reassemblyThreads  live capture only: number of threads reassembling connections, defaults to 1
+     */
     @Builder
     public PCapCapture(RbelConverter rbelConverter, String deviceName, String pcapFile, String filter,
-                       boolean printMessageToSystemOut) {
+                       boolean printMessageToSystemOut, Duration flowIdleTimeout, Long maximumHeldBytes,
+                       Integer packetRingSize, Integer reassemblyThreads) {
         super(rbelConverter);
         this.deviceName = deviceName;
         this.pcapFile = pcapFile;
         this.filter = filter;
         this.printMessageToSystemOut = printMessageToSystemOut;
+        this.flowIdleTimeout = Optional.ofNullable(flowIdleTimeout).orElse(TcpFlowTable.DEFAULT_IDLE_TIMEOUT);
+        this.maximumHeldBytes = Optional.ofNullable(maximumHeldBytes).orElse(TcpFlowTable.DEFAULT_MAXIMUM_HELD_BYTES);
+        this.packetRingSize = Optional.ofNullable(packetRingSize).orElse(DEFAULT_PACKET_RING_SIZE);
+        this.reassemblyThreads = Math.max(1, Optional.ofNullable(reassemblyThreads).orElse(1));
     }
 
     private static void setWindowsNpcapPath() {
@@ -89,12 +108,10 @@ public class PCapCapture extends RbelCapturer {
         preparePcapHandle();
         prepareFilter();
 
-        final RBelPacketListener packetListener = new RBelPacketListener(handle, dumper);
-
         if (pcapFile != null) {
-            readPcapFile(packetListener);
+            readPcapFile(new RBelPacketListener(handle, dumper, maximumHeldBytes, 0, 1));
         } else {
-            startLiveCaptureThread(packetListener);
+            startLiveCaptureThread();
         }
 
         return this;
@@ -122,12 +139,13 @@ public class PCapCapture extends RbelCapturer {
     }
 
     private void readPcapFile(RBelPacketListener packetListener) {
+        final DataLinkType dataLinkType = handle.getDlt();
         while (handle.isOpen()) {
             try {
-                packetListener.gotPacket(handle.getNextPacketEx());
-                log.trace(
-                    "Read-In loop. Currently there are {} request and {} response TCP-Packets in their respective buffers.",
-                    unhandledTcpRequests.size(), unhandledTcpResponses.size());
+                final byte[] rawPacket = handle.getNextRawPacketEx();
+                packetListener.gotRawPacket(rawPacket, rawPacket.length, dataLinkType, getPacketTimestamp());
+                log.trace("Read-In loop. Currently there are {} TCP-Connections holding {} bytes.",
+                    packetListener.tcpFlowTable.getFlowCount(), packetListener.tcpFlowTable.getHeldBytes());
             } catch (EOFException e) {
                 log.info("Reached EOF");
                 break;
@@ -135,26 +153,106 @@ public class PCapCapture extends RbelCapturer {
                 throw new RuntimeException(e);
             }
         }
+        packetListener.tcpFlowTable.expireAll();
+        getRbelConverter().waitForAllPendingMessages();
         log.trace("After loop");
     }
 
-    private void startLiveCaptureThread(RBelPacketListener packetListener) {
+    private Instant getPacketTimestamp() {
+        return Optional.ofNullable(handle)
+            .map(PcapHandle::getTimestamp)
+            .map(Timestamp::toInstant)
+            .orElseGet(Instant::now);
+    }
+
+    /**
+     * The capture thread only copies the packets into the {@link PacketRing}. The reassembly threads decode them and
+     * each one reassembles its share of the connections, the completed messages are converted on a separate thread
+     * (or the conversion threads of the converter, if configured). A slow conversion thus no longer stalls the
+     * capture loop, and if the ring stays full, packets are dropped and counted instead.
+     */
+    private void startLiveCaptureThread() {
+        packetRing = new PacketRing(packetRingSize, reassemblyThreads, INITIAL_RING_SLOT_SIZE);
+        if (getRbelConverter().getConversionThreads() <= 0) {
+            conversionExecutor = newConversionExecutor(Math.max(1, getRbelConverter().getConversionQueueSize()));
+        }
+        final DataLinkType dataLinkType = handle.getDlt();
+        for (int i = 0; i < reassemblyThreads; i++) {
+            final RBelPacketListener packetListener = new RBelPacketListener(handle, dumper,
+                maximumHeldBytes / reassemblyThreads, i, reassemblyThreads);
+            packetListenerList.add(packetListener);
+            final int consumer = i;
+            final Thread reassemblyThread = new Thread(() -> packetRing.consume(consumer,
+                (data, length, timestamp) -> {
+                    try {
+                        packetListener.gotRawPacket(data, length, dataLinkType, timestamp);
+                    } catch (RuntimeException e) {
+                        log.warn("Exception while processing captured packet", e);
+                    }
+                }),
+                "pcap-reassembly-" + i);
+            reassemblyThread.setDaemon(true);
+            reassemblyThread.start();
+            reassemblyThreadList.add(reassemblyThread);
+        }
         captureThread = new Thread(() -> {
             try {
                 handle.setFilter(filter, BpfCompileMode.OPTIMIZE);
 
                 final int maxPackets = -1;
-                handle.loop(maxPackets, packetListener);
+                handle.loop(maxPackets, (RawPacketListener) rawPacket -> {
+                    if (!packetRing.offer(rawPacket, rawPacket.length, handle.getTimestamp().toInstant(),
+                        MAXIMUM_RING_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        log.trace("Packet ring is full, dropping packet");
+                    }
+                });
             } catch (final InterruptedException e) {
                 log.info("Packet capturing interrupted...");
                 Thread.currentThread().interrupt();
             } catch (PcapNativeException | NotOpenException e) {
                 throw new RuntimeException(e);
             }
-        });
+        }, "pcap-capture");
         captureThread.start();
     }
 
+    /**
+     * Single thread preserving the order of the messages. Its queue is bounded, when it is full the reassembly threads
+     * wait.
+     */
+    private static ThreadPoolExecutor newConversionExecutor(int queueSize) {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+            runnable -> {
+                final Thread thread = new Thread(runnable, "pcap-conversion");
+                thread.setDaemon(true);
+                return thread;
+            },
+            (runnable, executor) -> {
+                try {
+                    if (!executor.isShutdown()) {
+                        executor.getQueue().put(runnable);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for the conversion queue", e);
+                }
+            });
+    }
+
+    /**
+     * Packets dropped in live mode because the reassembly threads could not keep up
+     */
+    public long getDroppedPackets() {
+        return Optional.ofNullable(packetRing).map(PacketRing::getDroppedPackets).orElse(0L);
+    }
+
+    /**
+     * How often the capture thread found the packet ring full and had to wait for the reassembly threads
+     */
+    public long getBackpressureEvents() {
+        return Optional.ofNullable(packetRing).map(PacketRing::getBackpressureEvents).orElse(0L);
+    }
+
     private void getOnlineHandle() {
         try {
             getLivePcapHandle();
@@ -170,17 +268,26 @@ public class PCapCapture extends RbelCapturer {
             initialize();
             return;
         }
-        try {
-            captureThread.join();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
         try {
             handle.breakLoop();
         } catch (NotOpenException e) {
             // swallow
         }
+        try {
+            captureThread.join();
+            packetRing.halt();
+            for (Thread reassemblyThread : reassemblyThreadList) {
+                reassemblyThread.join();
+            }
+            packetListenerList.forEach(packetListener -> packetListener.tcpFlowTable.expireAll());
+            if (conversionExecutor != null) {
+                conversionExecutor.shutdown();
+                conversionExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        getRbelConverter().waitForAllPendingMessages();
 
         tryToPrintStats();
 
@@ -197,6 +304,8 @@ public class PCapCapture extends RbelCapturer {
                 log.info("Packets received: " + stats.getNumPacketsReceived());
                 log.info("Packets dropped: " + stats.getNumPacketsDropped());
                 log.info("Packets dropped by interface: " + stats.getNumPacketsDroppedByIf());
+                log.info("Packets dropped by packet ring: " + getDroppedPackets());
+                log.info("Backpressure events of packet ring: " + getBackpressureEvents());
                 // Supported by WinPcap only
                 if (SystemUtils.IS_OS_WINDOWS) {
                     log.info("Packets captured: " + stats.getNumPacketsCaptured());
@@ -229,199 +338,167 @@ public class PCapCapture extends RbelCapturer {
         }
     }
 
-    private byte[] getCurrentBuffer(List<TcpPacket> requestList) {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        requestList.stream()
-            .sorted(Comparator.comparing(tcpPacket -> tcpPacket.getHeader().getSequenceNumber()))
-            .map(Packet::getPayload)
-            .map(Packet::getRawData)
-            .forEach(data -> {
-                try {
-                    outputStream.write(data);
-                } catch (IOException e) {
-                }
-            });
-
-        return outputStream.toByteArray();
-    }
+    /**
+     * Reassembles the connections of one partition ({@code partition} out of {@code partitions}, by a hash of the
+     * connection), so that every connection is handled by the same listener.
+     */
+    class RBelPacketListener {
 
-
-    @RequiredArgsConstructor
-    class RBelPacketListener implements PacketListener {
-
-        private static final String CONTENT_LENGTH_HEADER_START = "Content-Length: ";
         private final PcapHandle handle;
         private final PcapDumper dumper;
+        private final TcpFlowTable tcpFlowTable;
+        private final int partition;
+        private final int partitions;
+        private final TcpPacketView packetView = new TcpPacketView();
+        private int packetReceived = 0;
+        private int tcpPacketReceived = 0;
+
+        RBelPacketListener(PcapHandle handle, PcapDumper dumper, long maximumHeldBytes, int partition,
+            int partitions) {
+            this.handle = handle;
+            this.dumper = dumper;
+            this.tcpFlowTable = new TcpFlowTable(flowIdleTimeout, maximumHeldBytes,
+                flow -> completeMessagesOfEndedConnection(flow, flow.getLastActivity()));
+            this.partition = partition;
+            this.partitions = partitions;
+        }
 
-        @SneakyThrows
-        @Override
-        public void gotPacket(final Packet packet) {
-            Optional<TcpPacket> tcpPacket = extractTcpPacket(packet);
-            if (tcpServerPort == -1
-                && tcpPacket.isPresent()
-                && tcpPacket.get().getHeader().getSyn()
-                && !tcpPacket.get().getHeader().getAck()) {
-                tcpServerPort = tcpPacket.get().getHeader().getDstPort().valueAsInt();
-            }
-
+        /**
+         * Decodes the headers with the {@link TcpPacketView}. Link types it does not know are decoded by pcap4j, the
+         * view then only reads the IP packet found there.
+         */
+        public void gotRawPacket(byte[] data, int length, DataLinkType dataLinkType, Instant timestamp) {
             packetReceived++;
-            if (tcpPacket.isEmpty() ||
-                tcpPacket.get().getPayload() == null) {
+            final boolean decoded = TcpPacketView.supportsDataLinkType(dataLinkType)
+                ? packetView.wrap(data, length, dataLinkType)
+                : wrapIpPacketDecodedByPcap4j(data, length, dataLinkType);
+            if (!decoded || Math.floorMod(packetView.getConnectionHash(), partitions) != partition) {
                 return;
             }
-            tcpPacketReceived++;
-
-            final Pair<RbelHostname, RbelHostname> ipAddresses = getIpAddresses(packet);
-            if (tcpPacket.get().getHeader().getDstPort().valueAsInt() == tcpServerPort) {
-                addToBufferAndExtractCompletedMessages(tcpPacket, unhandledTcpRequests,
-                    ipAddresses.getKey(), ipAddresses.getValue());
-            } else {
-                addToBufferAndExtractCompletedMessages(tcpPacket, unhandledTcpResponses,
-                    ipAddresses.getKey(), ipAddresses.getValue());
+            handleTcpPacket(timestamp);
+            if (packetView.getPayloadLength() == 0) {
+                return;
             }
+            tcpPacketReceived++;
 
             if ((tcpPacketReceived % 1_000) == 0) {
                 log.info("Received {} TCP-Packets from {} packets overall", tcpPacketReceived, packetReceived);
             }
             try {
                 if (dumper != null) {
-                    dumper.dump(packet, handle.getTimestamp());
+                    synchronized (dumper) {
+                        dumper.dumpRaw(Arrays.copyOf(data, length), Timestamp.from(timestamp));
+                    }
                 }
             } catch (final NotOpenException e) {
                 throw new RuntimeException("Encountered exception while receiving", e);
             }
         }
 
-        private Pair<RbelHostname, RbelHostname> getIpAddresses(Packet packet) {
-            Optional<Integer> srcPort = Optional.empty();
-            Optional<String> srcIpAddress = Optional.empty();
-            Optional<Integer> dstPort = Optional.empty();
-            Optional<String> dstIpAddress = Optional.empty();
-            do {
-                if (packet instanceof IpV4Packet) {
-                    dstIpAddress = Optional.of(((IpV4Packet) packet)
-                        .getHeader().getDstAddr().getHostAddress());
-                    srcIpAddress = Optional.of(((IpV4Packet) packet)
-                        .getHeader().getSrcAddr().getHostAddress());
-                }
-                if (packet instanceof TcpPacket) {
-                    dstPort = Optional.of(((TcpPacket) packet)
-                        .getHeader().getDstPort().valueAsInt());
-                    srcPort = Optional.of(((TcpPacket) packet)
-                        .getHeader().getSrcPort().valueAsInt());
-                }
-                packet = packet.getPayload();
-            } while (packet.getPayload() != null);
-            if (srcPort.isEmpty() || srcIpAddress.isEmpty()
-                || dstPort.isEmpty() || dstIpAddress.isEmpty()) {
-                throw new RbelException("Error while trying to gather src/dst Data from " + packet);
-            }
-            return Pair.of(
-                new RbelHostname(srcIpAddress.get(), srcPort.get()),
-                new RbelHostname(dstIpAddress.get(), dstPort.get())
-            );
-        }
-
-        private void addToBufferAndExtractCompletedMessages(Optional<TcpPacket> tcpPacket, List<TcpPacket> buffer,
-                                                            RbelHostname sender, RbelHostname recipient) {
-            tcpPacket.ifPresent(buffer::add);
-            Optional<byte[]> nextMessage = extractCompleteHttpMessage(getCurrentBuffer(buffer));
-            if (nextMessage.isPresent()) {
-                processSimpleHttpPackets(nextMessage.get(), sender, recipient);
-                buffer.clear();
-            }
-        }
-
-        private Optional<byte[]> extractCompleteHttpMessage(byte[] currentBuffer) {
-            String dumpString = new String(currentBuffer, StandardCharsets.US_ASCII);
-            if (!isHttp(dumpString)) {
-                log.trace("No HTTP-message recognized, skipping");
-                return Optional.empty();
+        private boolean wrapIpPacketDecodedByPcap4j(byte[] data, int length, DataLinkType dataLinkType) {
+            final Packet packet;
+            try {
+                packet = PacketFactories.getFactory(Packet.class, DataLinkType.class)
+                    .newInstance(data, 0, length, dataLinkType);
+            } catch (RuntimeException e) {
+                log.trace("Skipping undecodable packet", e);
+                return false;
             }
-            String[] messageParts = dumpString.split("\r\n\r\n");
-            String[] headerFields = messageParts[0].split("\r\n");
-            Optional<Integer> messageLength = Stream.of(headerFields)
-                .filter(field -> field.startsWith(CONTENT_LENGTH_HEADER_START))
-                .map(field -> field.substring(CONTENT_LENGTH_HEADER_START.length()))
-                .filter(NumberUtils::isParsable)
-                .map(Integer::parseInt)
-                .findAny();
-            if (messageLength.isPresent()) {
-                if (messageParts.length < 2) {
-                    if (messageLength.isEmpty() || messageLength.get() == 0) {
-                        return Optional.of(currentBuffer);
-                    } else {
-                        log.trace("Header found, body segmented away. \n'{}'", dumpString);
-                        return Optional.empty();
-                    }
-                } else if (messageParts[1].length() == messageLength.get()
-                    || messageParts[1].length() == messageLength.get() + 1) {
-                    return Optional.of(currentBuffer);
-                } else if (messageParts[1].length() > messageLength.get()) {
-                    throw new RuntimeException(
-                        "Overshot while parsing message (collected more bytes then the message has)");
-                } else {
-                    log.trace("Message not yet complete. Wanted {} bytes, but found only {}", messageLength.get(),
-                        messageParts[1].length());
-                    return Optional.empty();
+            for (Packet layer = packet; layer != null; layer = layer.getPayload()) {
+                if (layer instanceof IpV4Packet || layer instanceof IpV6Packet) {
+                    final byte[] ipPacket = layer.getRawData();
+                    return packetView.wrapIpPacket(ipPacket, 0, ipPacket.length);
                 }
-            } else {
-                boolean chunked = Arrays.asList(headerFields).contains("Transfer-Encoding: chunked");
-                if (!chunked) {
-                    log.trace("Returning (hopefully) body-less message");
-                    return Optional.of(currentBuffer);
-                }
-                if (!dumpString.endsWith("0\r\n\r\n")) {
-                    log.trace("Chunked message, incomplete");
-                    return Optional.empty();
-                }
-                log.trace("Returning chunked message");
-                return Optional.ofNullable(currentBuffer);
             }
+            return false;
         }
 
-        private Optional<TcpPacket> extractTcpPacket(Packet packet) {
-            Packet ptr = packet;
-            while ((ptr != null) && !(ptr instanceof TcpPacket)) {
-                ptr = ptr.getPayload();
+        private void handleTcpPacket(Instant timestamp) {
+            TcpFlow flow = tcpFlowTable.getFlow(packetView, timestamp);
+            RbelHostname sender = flow.getSenderOf(packetView);
+            if (packetView.isSyn()) {
+                if (!packetView.isAck()
+                    && flow.getStreamFrom(sender).isStartedWithOtherSynThan(packetView.getSequenceNumber())) {
+                    log.trace("New connection from {} to {} replaces an old one", sender, flow.getPeerOf(sender));
+                    tcpFlowTable.remove(flow);
+                    flow = tcpFlowTable.getFlow(packetView, timestamp);
+                    sender = flow.getSenderOf(packetView);
+                }
+                flow.observeHandshake(sender, true, packetView.isAck());
+                flow.getStreamFrom(sender).synchronize(packetView.getSequenceNumber());
             }
-            if (ptr instanceof TcpPacket) {
-                return Optional.ofNullable((TcpPacket) ptr);
-            } else {
-                return Optional.empty();
+            if (packetView.getPayloadLength() > 0) {
+                addToBufferAndExtractCompletedMessages(flow, sender, flow.getPeerOf(sender), timestamp);
             }
-        }
-
-        @SneakyThrows
-        private void processSimpleHttpPackets(final byte[] content, RbelHostname sender, RbelHostname recipient) {
-            final RbelElement convertedMessage = getRbelConverter().parseMessage(content, sender, recipient, Optional.of(ZonedDateTime.now()));
-            if (printMessageToSystemOut && convertedMessage != null && content.length > 0) {
-                if (convertedMessage.getRawStringContent() != null) {
-                    log.trace("RBEL: " + convertedMessage.getRawStringContent());
+            if (packetView.isRst()) {
+                tcpFlowTable.remove(flow);
+                completeMessagesOfEndedConnection(flow, timestamp);
+            } else if (packetView.isFin()) {
+                completeMessageOfEndedStream(flow, sender, timestamp);
+                if (flow.finish(sender)) {
+                    tcpFlowTable.remove(flow);
                 } else {
-                    log.trace("RBEL: <null> message encountered!");
+                    tcpFlowTable.accountHeldBytes(flow);
                 }
             }
         }
 
-        private boolean isHttp(final String content) {
-            return isHttpRequest(content) || isHttpResponse(content);
+        private void completeMessagesOfEndedConnection(TcpFlow flow, Instant timestamp) {
+            completeMessageOfEndedStream(flow, flow.getFirstEndpoint(), timestamp);
+            completeMessageOfEndedStream(flow, flow.getSecondEndpoint(), timestamp);
         }
 
-        private boolean isHttpResponse(final String content) {
-            return content.startsWith("HTTP/");
+        /**
+         * Emits the message delimited by the end of the connection (a response without length), if one is open.
+         */
+        private void completeMessageOfEndedStream(TcpFlow flow, RbelHostname sender, Instant timestamp) {
+            final TcpStream stream = flow.getStreamFrom(sender);
+            stream.getHttpMessageFramer().flush(stream).ifPresent(message -> {
+                flow.observeMessage(sender, message);
+                processSimpleHttpPackets(message, sender, flow.getPeerOf(sender), timestamp);
+            });
         }
 
-        private boolean isHttpRequest(final String content) {
-            return isGetOrDeleteRequest(content) || isPostOrPutRequest(content);
+        /**
+         * @param timestamp capture time of the current segment, it completes all messages extracted here
+         */
+        private void addToBufferAndExtractCompletedMessages(TcpFlow flow, RbelHostname sender, RbelHostname recipient,
+            Instant timestamp) {
+            final TcpStream stream = flow.getStreamFrom(sender);
+            if (stream.addSegment(packetView.getSequenceNumber(), packetView.getData(), packetView.getPayloadOffset(),
+                packetView.getPayloadLength())) {
+                for (byte[] message : stream.getHttpMessageFramer().extractCompletedMessages(stream)) {
+                    flow.observeMessage(sender, message);
+                    processSimpleHttpPackets(message, sender, recipient, timestamp);
+                }
+            } else {
+                log.trace("No new contiguous data from {} to {}", sender, recipient);
+            }
+            tcpFlowTable.accountHeldBytes(flow);
         }
 
-        private boolean isGetOrDeleteRequest(final String content) {
-            return content.startsWith("GET ") || content.startsWith("DELETE ");
+        private void processSimpleHttpPackets(final byte[] content, RbelHostname sender, RbelHostname recipient,
+            Instant timestamp) {
+            if (conversionExecutor != null) {
+                conversionExecutor.execute(() -> convertMessage(content, sender, recipient, timestamp));
+            } else {
+                convertMessage(content, sender, recipient, timestamp);
+            }
         }
 
-        private boolean isPostOrPutRequest(final String content) {
-            return content.startsWith("POST ") || content.startsWith("PUT ");
+        private void convertMessage(final byte[] content, RbelHostname sender, RbelHostname recipient,
+            Instant timestamp) {
+            final ZonedDateTime transmissionTime = ZonedDateTime.ofInstant(timestamp, ZoneId.systemDefault());
+            getRbelConverter().parseMessageAsync(content, sender, recipient, Optional.of(transmissionTime))
+                .thenAccept(convertedMessage -> {
+                    if (printMessageToSystemOut && convertedMessage != null && content.length > 0) {
+                        if (convertedMessage.getRawStringContent() != null) {
+                            log.trace("RBEL: " + convertedMessage.getRawStringContent());
+                        } else {
+                            log.trace("RBEL: <null> message encountered!");
+                        }
+                    }
+                });
         }
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.captures;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded handoff of captured packets from the capture thread to the processing threads, in the style of the LMAX
+ * Disruptor. The slots and their buffers are allocated up front and reused: the single producer copies a packet into
+ * the next free slot and publishes it by advancing the cursor, every consumer follows the cursor with a sequence of its
+ * own. Every consumer sees every packet, so consumers partition the work among themselves (e.g. by connection).
+ * <p>
+ * A slot is only reused when all consumers have passed it. If the ring is full, the producer waits for a bounded time
+ * (counted as backpressure) and then drops the packet (counted as drop), so a slow consumer never blocks the capture
+ * loop indefinitely.
+ */
+public class PacketRing {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicLong[] consumerSequences;
+    private final AtomicLong droppedPackets = new AtomicLong();
+    private final AtomicLong backpressureEvents = new AtomicLong();
+    private long nextSequence = 0;
+    private long cachedMinimumConsumerSequence = -1;
+    private volatile boolean halted = false;
+
+    /**
+     * @param capacity        number of slots, rounded up to the next power of two
+     * @param consumers       number of consumers, each one has to call {@link #consume(int, PacketHandler)}
+     * @param initialSlotSize initial size of the buffer of every slot, grown when a larger packet arrives
+     */
+    public PacketRing(int capacity, int consumers, int initialSlotSize) {
+        if (capacity < 1 || consumers < 1 || initialSlotSize < 0) {
+            throw new IllegalArgumentException("Capacity and number of consumers have to be positive, was "
+                + capacity + " and " + consumers);
+        }
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(initialSlotSize);
+        }
+        this.mask = size - 1;
+        this.consumerSequences = new AtomicLong[consumers];
+        for (int i = 0; i < consumers; i++) {
+            consumerSequences[i] = new AtomicLong(-1);
+        }
+    }
+
+    /**
+     * Copies the packet into the ring. Must only be called from one thread.
+     *
+     * @param maximumWait how long to wait for a free slot if the ring is full
+     * @return false if the packet was dropped because the ring stayed full
+     */
+    public boolean offer(byte[] data, int length, Instant timestamp, long maximumWait, TimeUnit unit) {
+        if (halted) {
+            droppedPackets.incrementAndGet();
+            return false;
+        }
+        if (!hasFreeSlot()) {
+            backpressureEvents.incrementAndGet();
+            final long deadline = System.nanoTime() + unit.toNanos(maximumWait);
+            int tries = 0;
+            while (!hasFreeSlot()) {
+                if (halted || System.nanoTime() - deadline >= 0) {
+                    droppedPackets.incrementAndGet();
+                    return false;
+                }
+                tries = idle(tries);
+            }
+        }
+        final long sequence = nextSequence++;
+        slots[(int) sequence & mask].copyFrom(data, length, timestamp);
+        cursor.set(sequence);
+        return true;
+    }
+
+    /**
+     * Hands every published packet to the handler, until the ring is halted and all packets published before have been
+     * handled. The data passed to the handler is only valid during the call.
+     *
+     * @param consumer index of the consumer, from 0 to the number of consumers (exclusive)
+     */
+    public void consume(int consumer, PacketHandler handler) {
+        final AtomicLong sequence = consumerSequences[consumer];
+        int tries = 0;
+        while (true) {
+            final boolean lastRound = halted;
+            final long available = cursor.get();
+            if (available > sequence.get()) {
+                for (long next = sequence.get() + 1; next <= available; next++) {
+                    final Slot slot = slots[(int) next & mask];
+                    try {
+                        handler.handle(slot.data, slot.length, slot.timestamp);
+                    } finally {
+                        sequence.set(next);
+                    }
+                }
+                tries = 0;
+            } else if (lastRound) {
+                return;
+            } else {
+                tries = idle(tries);
+            }
+        }
+    }
+
+    /**
+     * Stops the consumers once they have handled all packets published so far. Packets offered afterwards are dropped.
+     */
+    public void halt() {
+        halted = true;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    public long getPublishedPackets() {
+        return cursor.get() + 1;
+    }
+
+    /**
+     * Packets which were discarded because the ring stayed full
+     */
+    public long getDroppedPackets() {
+        return droppedPackets.get();
+    }
+
+    /**
+     * How often the producer found the ring full and had to wait for a consumer
+     */
+    public long getBackpressureEvents() {
+        return backpressureEvents.get();
+    }
+
+    private boolean hasFreeSlot() {
+        final long wrapPoint = nextSequence - slots.length;
+        if (wrapPoint <= cachedMinimumConsumerSequence) {
+            return true;
+        }
+        long minimum = Long.MAX_VALUE;
+        for (AtomicLong consumerSequence : consumerSequences) {
+            minimum = Math.min(minimum, consumerSequence.get());
+        }
+        cachedMinimumConsumerSequence = minimum;
+        return wrapPoint <= minimum;
+    }
+
+    private static int idle(int tries) {
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+            return tries;
+        }
+        return tries + 1;
+    }
+
+    @FunctionalInterface
+    public interface PacketHandler {
+
+        void handle(byte[] data, int length, Instant timestamp);
+    }
+
+    private static class Slot {
+
+        private byte[] data;
+        private int length;
+        private Instant timestamp;
+
+        private Slot(int initialSize) {
+            this.data = new byte[initialSize];
+        }
+
+        private void copyFrom(byte[] source, int sourceLength, Instant sourceTimestamp) {
+            if (data.length < sourceLength) {
+                data = new byte[Math.max(sourceLength, data.length * 2)];
+            }
+            System.arraycopy(source, 0, data, 0, sourceLength);
+            length = sourceLength;
+            timestamp = sourceTimestamp;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.captures;
+
+import de.gematik.rbellogger.data.RbelHostname;
+import java.time.Instant;
+import java.util.Optional;
+import lombok.Getter;
+
+/**
+ * Both directions of one captured TCP connection. The client is the endpoint sending the initial SYN; if the handshake
+ * was not captured, the sender of the first HTTP request (or the receiver of the first HTTP response) is taken.
+ */
+public class TcpFlow {
+
+    @Getter
+    private final RbelHostname firstEndpoint;
+    @Getter
+    private final RbelHostname secondEndpoint;
+    private final TcpStream streamFromFirst = new TcpStream();
+    private final TcpStream streamFromSecond = new TcpStream();
+    private RbelHostname client;
+    private boolean finishedFromFirst;
+    private boolean finishedFromSecond;
+    @Getter
+    private Instant lastActivity;
+    /**
+     * Bytes held by both streams when last accounted by the flow table
+     */
+    long accountedBytes;
+    final TcpFlowTable.ConnectionKey key;
+
+    TcpFlow(TcpFlowTable.ConnectionKey key, RbelHostname firstEndpoint, RbelHostname secondEndpoint,
+        Instant lastActivity) {
+        this.key = key;
+        this.firstEndpoint = firstEndpoint;
+        this.secondEndpoint = secondEndpoint;
+        this.lastActivity = lastActivity;
+    }
+
+    public TcpStream getStreamFrom(RbelHostname sender) {
+        return sender.equals(firstEndpoint) ? streamFromFirst : streamFromSecond;
+    }
+
+    /**
+     * The endpoint which sent the wrapped packet, for flows looked up by {@link TcpFlowTable#getFlow(TcpPacketView,
+     * Instant)}
+     */
+    public RbelHostname getSenderOf(TcpPacketView packet) {
+        return key.isFirstEndpoint(packet.getData(), packet.getSourceAddressOffset(), packet.getAddressLength(),
+            packet.getSourcePort()) ? firstEndpoint : secondEndpoint;
+    }
+
+    public Optional<RbelHostname> getClient() {
+        return Optional.ofNullable(client);
+    }
+
+    public Optional<RbelHostname> getServer() {
+        return getClient().map(this::getPeerOf);
+    }
+
+    public RbelHostname getPeerOf(RbelHostname endpoint) {
+        return endpoint.equals(firstEndpoint) ? secondEndpoint : firstEndpoint;
+    }
+
+    /**
+     * Learns the roles from the handshake: a SYN comes from the client, a SYN-ACK from the server.
+     */
+    public void observeHandshake(RbelHostname sender, boolean syn, boolean ack) {
+        if (syn) {
+            client = ack ? getPeerOf(sender) : sender;
+        }
+    }
+
+    /**
+     * Learns the roles from the first framed HTTP message, unless they are already known.
+     */
+    public void observeMessage(RbelHostname sender, byte[] message) {
+        if (client == null) {
+            client = startsWith(message, "HTTP/") ? getPeerOf(sender) : sender;
+        }
+    }
+
+    /**
+     * @return true if both directions are finished (FIN), i.e. the flow can be dropped
+     */
+    public boolean finish(RbelHostname sender) {
+        if (sender.equals(firstEndpoint)) {
+            finishedFromFirst = true;
+        } else {
+            finishedFromSecond = true;
+        }
+        return finishedFromFirst && finishedFromSecond;
+    }
+
+    public long getHeldBytes() {
+        return streamFromFirst.getHeldBytes() + streamFromSecond.getHeldBytes();
+    }
+
+    void touch(Instant timestamp) {
+        if (timestamp.isAfter(lastActivity)) {
+            lastActivity = timestamp;
+        }
+    }
+
+    private static boolean startsWith(byte[] message, String prefix) {
+        if (message.length < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (message[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.captures;
+
+import de.gematik.rbellogger.data.RbelHostname;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The captured TCP connections, keyed by their 4-tuple independent of the direction of a packet. Memory is bounded:
+ * flows without packets for longer than the idle timeout (measured in capture time) are dropped, and while the bytes
+ * held by all flows exceed the limit the least recently active flows are dropped. Expired flows are passed to the
+ * expiry handler first, so that messages delimited by the end of the connection can be completed.
+ * <p>
+ * Captured packets are looked up by the raw address bytes and ports of their {@link TcpPacketView}, through a reused
+ * probe key, so only the creation of a flow allocates (its key and the {@link RbelHostname}s of its endpoints). Flows
+ * looked up by {@link RbelHostname} are keyed by the hostnames instead and are distinct from the captured ones.
+ */
+@Slf4j
+public class TcpFlowTable {
+
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    public static final long DEFAULT_MAXIMUM_HELD_BYTES = 256L * 1024 * 1024;
+
+    private final Duration idleTimeout;
+    private final long maximumHeldBytes;
+    private final Consumer<TcpFlow> expiredFlowHandler;
+    /**
+     * In access order, i.e. the least recently active flow first
+     */
+    private final Map<ConnectionKey, TcpFlow> flows = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConnectionKey probe = new ConnectionKey();
+    @Getter
+    private long heldBytes = 0;
+    @Getter
+    private long droppedFlows = 0;
+
+    public TcpFlowTable() {
+        this(DEFAULT_IDLE_TIMEOUT, DEFAULT_MAXIMUM_HELD_BYTES);
+    }
+
+    public TcpFlowTable(Duration idleTimeout, long maximumHeldBytes) {
+        this(idleTimeout, maximumHeldBytes, flow -> {
+        });
+    }
+
+    /**
+     * @param expiredFlowHandler called for every flow expired as idle or by {@link #expireAll()}, after it was removed
+     */
+    public TcpFlowTable(Duration idleTimeout, long maximumHeldBytes, Consumer<TcpFlow> expiredFlowHandler) {
+        this.idleTimeout = idleTimeout;
+        this.maximumHeldBytes = maximumHeldBytes;
+        this.expiredFlowHandler = expiredFlowHandler;
+    }
+
+    /**
+     * The flow the wrapped packet belongs to, created if unknown. Flows idle at the time of the packet are expired
+     * first.
+     */
+    public TcpFlow getFlow(TcpPacketView packet, Instant timestamp) {
+        expireIdleFlows(timestamp);
+        final boolean senderFirst = probe.set(
+            packet.getData(), packet.getSourceAddressOffset(), packet.getAddressLength(), packet.getSourcePort(),
+            packet.getData(), packet.getDestinationAddressOffset(), packet.getAddressLength(),
+            packet.getDestinationPort());
+        TcpFlow flow = flows.get(probe);
+        if (flow == null) {
+            final RbelHostname sender = new RbelHostname(packet.getSourceAddress(), packet.getSourcePort());
+            final RbelHostname receiver = new RbelHostname(packet.getDestinationAddress(), packet.getDestinationPort());
+            flow = createFlow(probe.copy(), senderFirst, sender, receiver, timestamp);
+        }
+        flow.touch(timestamp);
+        return flow;
+    }
+
+    /**
+     * The flow between the two endpoints, created if unknown. Flows idle at the time of the packet are expired first.
+     */
+    public TcpFlow getFlow(RbelHostname sender, RbelHostname receiver, Instant timestamp) {
+        expireIdleFlows(timestamp);
+        final byte[] senderName = hostnameBytes(sender);
+        final byte[] receiverName = hostnameBytes(receiver);
+        final boolean senderFirst = probe.set(senderName, 0, senderName.length, sender.getPort(),
+            receiverName, 0, receiverName.length, receiver.getPort());
+        TcpFlow flow = flows.get(probe);
+        if (flow == null) {
+            flow = createFlow(probe.copy(), senderFirst, sender, receiver, timestamp);
+        }
+        flow.touch(timestamp);
+        return flow;
+    }
+
+    public void remove(TcpFlow flow) {
+        if (flows.remove(flow.key, flow)) {
+            heldBytes -= flow.accountedBytes;
+        }
+    }
+
+    /**
+     * Updates the bytes held after data was added to or consumed from the flow and drops flows (possibly this one)
+     * while the limit is exceeded.
+     */
+    public void accountHeldBytes(TcpFlow flow) {
+        final long flowBytes = flow.getHeldBytes();
+        heldBytes += flowBytes - flow.accountedBytes;
+        flow.accountedBytes = flowBytes;
+        final Iterator<TcpFlow> leastRecentlyActive = flows.values().iterator();
+        while (heldBytes > maximumHeldBytes && leastRecentlyActive.hasNext()) {
+            final TcpFlow dropped = leastRecentlyActive.next();
+            log.warn("Holding {} bytes of incomplete TCP data (limit {}), dropping connection {} <-> {}",
+                heldBytes, maximumHeldBytes, dropped.getFirstEndpoint(), dropped.getSecondEndpoint());
+            leastRecentlyActive.remove();
+            heldBytes -= dropped.accountedBytes;
+            droppedFlows++;
+        }
+    }
+
+    /**
+     * Expires all flows, e.g. when the capture ends.
+     */
+    public void expireAll() {
+        final Iterator<TcpFlow> remaining = flows.values().iterator();
+        while (remaining.hasNext()) {
+            final TcpFlow flow = remaining.next();
+            remaining.remove();
+            heldBytes -= flow.accountedBytes;
+            expiredFlowHandler.accept(flow);
+        }
+    }
+
+    public int getFlowCount() {
+        return flows.size();
+    }
+
+    private TcpFlow createFlow(ConnectionKey key, boolean senderFirst, RbelHostname sender, RbelHostname receiver,
+        Instant timestamp) {
+        final TcpFlow flow = senderFirst
+            ? new TcpFlow(key, sender, receiver, timestamp)
+            : new TcpFlow(key, receiver, sender, timestamp);
+        flows.put(key, flow);
+        return flow;
+    }
+
+    private void expireIdleFlows(Instant now) {
+        final Instant idleSince = now.minus(idleTimeout);
+        final Iterator<TcpFlow> leastRecentlyActive = flows.values().iterator();
+        while (leastRecentlyActive.hasNext()) {
+            final TcpFlow flow = leastRecentlyActive.next();
+            if (!flow.getLastActivity().isBefore(idleSince)) {
+                return;
+            }
+            log.trace("Connection {} <-> {} idle since {}, dropping it",
+                flow.getFirstEndpoint(), flow.getSecondEndpoint(), flow.getLastActivity());
+            leastRecentlyActive.remove();
+            heldBytes -= flow.accountedBytes;
+            expiredFlowHandler.accept(flow);
+        }
+    }
+
+    private static byte[] hostnameBytes(RbelHostname hostname) {
+        return hostname.getHostname() == null
+            ? new byte[0]
+            : hostname.getHostname().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Both endpoints (address bytes and port) of a connection, the lower endpoint first, so that both directions have
+     * the same key. Mutable only to serve as reused probe; keys stored in the table are copies and never change.
+     */
+    static final class ConnectionKey {
+
+        private byte[] addresses = new byte[32];
+        private int firstAddressLength;
+        private int secondAddressLength;
+        private int firstPort;
+        private int secondPort;
+        private int hash;
+
+        /**
+         * @return true if the sender is the first endpoint of the key
+         */
+        boolean set(byte[] senderData, int senderOffset, int senderLength, int senderPort,
+            byte[] receiverData, int receiverOffset, int receiverLength, int receiverPort) {
+            final boolean senderFirst = compareEndpoints(senderData, senderOffset, senderLength, senderPort,
+                receiverData, receiverOffset, receiverLength, receiverPort) <= 0;
+            if (addresses.length < senderLength + receiverLength) {
+                addresses = new byte[senderLength + receiverLength];
+            }
+            if (senderFirst) {
+                setEndpoints(senderData, senderOffset, senderLength, senderPort,
+                    receiverData, receiverOffset, receiverLength, receiverPort);
+            } else {
+                setEndpoints(receiverData, receiverOffset, receiverLength, receiverPort,
+                    senderData, senderOffset, senderLength, senderPort);
+            }
+            return senderFirst;
+        }
+
+        boolean isFirstEndpoint(byte[] data, int offset, int length, int port) {
+            return port == firstPort && length == firstAddressLength
+                && Arrays.equals(addresses, 0, length, data, offset, offset + length);
+        }
+
+        ConnectionKey copy() {
+            final ConnectionKey copy = new ConnectionKey();
+            copy.addresses = Arrays.copyOf(addresses, firstAddressLength + secondAddressLength);
+            copy.firstAddressLength = firstAddressLength;
+            copy.secondAddressLength = secondAddressLength;
+            copy.firstPort = firstPort;
+            copy.secondPort = secondPort;
+            copy.hash = hash;
+            return copy;
+        }
+
+        private void setEndpoints(byte[] firstData, int firstOffset, int firstLength, int first,
+            byte[] secondData, int secondOffset, int secondLength, int second) {
+            System.arraycopy(firstData, firstOffset, addresses, 0, firstLength);
+            System.arraycopy(secondData, secondOffset, addresses, firstLength, secondLength);
+            firstAddressLength = firstLength;
+            secondAddressLength = secondLength;
+            firstPort = first;
+            secondPort = second;
+            int result = 31 * first + second;
+            for (int i = 0; i < firstLength + secondLength; i++) {
+                result = 31 * result + addresses[i];
+            }
+            hash = result;
+        }
+
+        private static int compareEndpoints(byte[] data, int offset, int length, int port,
+            byte[] otherData, int otherOffset, int otherLength, int otherPort) {
+            final int addressOrder = Arrays.compareUnsigned(data, offset, offset + length,
+                otherData, otherOffset, otherOffset + otherLength);
+            return addressOrder != 0 ? addressOrder : Integer.compare(port, otherPort);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof ConnectionKey)) {
+                return false;
+            }
+            final ConnectionKey key = (ConnectionKey) other;
+            final int length = firstAddressLength + secondAddressLength;
+            return hash == key.hash && firstPort == key.firstPort && secondPort == key.secondPort
+                && firstAddressLength == key.firstAddressLength && secondAddressLength == key.secondAddressLength
+                && Arrays.equals(addresses, 0, length, key.addresses, 0, length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.captures;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * Flyweight view of a captured TCP packet: the Ethernet (optionally VLAN tagged), Linux cooked, loopback or raw IP
+ * framing, the IPv4 or IPv6 header and the TCP header are read directly from the raw bytes, without building pcap4j
+ * packet objects. The view is reused for every packet and the payload stays a slice of the wrapped array, so it is only
+ * valid until the next call to {@code wrap}. Not thread-safe.
+ * <p>
+ * IP fragments (including IPv6 fragment headers) and malformed or truncated headers are not decoded.
+ */
+public final class TcpPacketView {
+
+    private static final int DLT_NULL = 0;
+    private static final int DLT_EN10MB = 1;
+    private static final int DLT_RAW = 12;
+    private static final int DLT_RAW_OPENBSD = 14;
+    private static final int LINKTYPE_RAW = 101;
+    private static final int DLT_LOOP = 108;
+    private static final int DLT_LINUX_SLL = 113;
+
+    private static final int ETHERNET_HEADER_LENGTH = 14;
+    private static final int VLAN_TAG_LENGTH = 4;
+    private static final int LOOPBACK_HEADER_LENGTH = 4;
+    private static final int LINUX_SLL_HEADER_LENGTH = 16;
+    private static final int ETHER_TYPE_IPV4 = 0x0800;
+    private static final int ETHER_TYPE_IPV6 = 0x86DD;
+    private static final int ETHER_TYPE_VLAN = 0x8100;
+    private static final int ETHER_TYPE_QINQ = 0x88A8;
+    private static final int ETHER_TYPE_QINQ_LEGACY = 0x9100;
+
+    private static final int IPV4_MINIMUM_HEADER_LENGTH = 20;
+    private static final int IPV6_HEADER_LENGTH = 40;
+    private static final int IPV6_HOP_BY_HOP = 0;
+    private static final int IPV6_ROUTING = 43;
+    private static final int IPV6_AUTHENTICATION = 51;
+    private static final int IPV6_DESTINATION_OPTIONS = 60;
+    private static final int PROTOCOL_TCP = 6;
+    private static final int TCP_MINIMUM_HEADER_LENGTH = 20;
+    private static final int TCP_FIN = 0x01;
+    private static final int TCP_SYN = 0x02;
+    private static final int TCP_RST = 0x04;
+    private static final int TCP_ACK = 0x10;
+
+    /**
+     * The wrapped array, the payload is the range from {@link #getPayloadOffset()} of length
+     * {@link #getPayloadLength()}
+     */
+    @Getter
+    private byte[] data;
+    @Getter(AccessLevel.PACKAGE)
+    private int addressLength;
+    @Getter(AccessLevel.PACKAGE)
+    private int sourceAddressOffset;
+    @Getter(AccessLevel.PACKAGE)
+    private int destinationAddressOffset;
+    @Getter
+    private int sourcePort;
+    @Getter
+    private int destinationPort;
+    @Getter
+    private long sequenceNumber;
+    private int flags;
+    @Getter
+    private int payloadOffset;
+    @Getter
+    private int payloadLength;
+
+    /**
+     * True if {@link #wrap} can decode the framing of the given link type. Packets of other link types have to be
+     * decoded otherwise and their IP packet can then be passed to {@link #wrapIpPacket}.
+     */
+    public static boolean supportsDataLinkType(DataLinkType dataLinkType) {
+        final int value = dataLinkType.value();
+        return value == DLT_EN10MB || value == DLT_LINUX_SLL || value == DLT_NULL || value == DLT_LOOP
+            || isRawIp(value);
+    }
+
+    /**
+     * @return false if the packet is not a complete TCP packet in IPv4 or IPv6
+     */
+    public boolean wrap(byte[] data, int length, DataLinkType dataLinkType) {
+        final int value = dataLinkType.value();
+        if (value == DLT_EN10MB) {
+            return wrapEthernetFrame(data, length);
+        } else if (value == DLT_LINUX_SLL) {
+            return length >= LINUX_SLL_HEADER_LENGTH
+                && wrapEtherType(readUnsignedShort(data, 14), data, LINUX_SLL_HEADER_LENGTH, length);
+        } else if (value == DLT_NULL || value == DLT_LOOP) {
+            // the address family is in host byte order for NULL, the IP version tells the same
+            return length >= LOOPBACK_HEADER_LENGTH
+                && wrapIpPacket(data, LOOPBACK_HEADER_LENGTH, length - LOOPBACK_HEADER_LENGTH);
+        } else if (isRawIp(value)) {
+            return wrapIpPacket(data, 0, length);
+        }
+        return false;
+    }
+
+    /**
+     * @param offset start of the IP header
+     * @param length bytes from the start of the IP header to the end of the captured data
+     * @return false if the packet is not a complete TCP packet in IPv4 or IPv6
+     */
+    public boolean wrapIpPacket(byte[] data, int offset, int length) {
+        this.data = data;
+        if (length < 1 || offset + length > data.length) {
+            return false;
+        }
+        final int version = (data[offset] >> 4) & 0x0F;
+        if (version == 4) {
+            return wrapIpV4Packet(offset, offset + length);
+        } else if (version == 6) {
+            return wrapIpV6Packet(offset, offset + length);
+        }
+        return false;
+    }
+
+    public String getSourceAddress() {
+        return formatAddress(sourceAddressOffset);
+    }
+
+    public String getDestinationAddress() {
+        return formatAddress(destinationAddressOffset);
+    }
+
+    public boolean isSyn() {
+        return (flags & TCP_SYN) != 0;
+    }
+
+    public boolean isAck() {
+        return (flags & TCP_ACK) != 0;
+    }
+
+    public boolean isFin() {
+        return (flags & TCP_FIN) != 0;
+    }
+
+    public boolean isRst() {
+        return (flags & TCP_RST) != 0;
+    }
+
+    /**
+     * Hash of the connection, the same for both directions
+     */
+    public int getConnectionHash() {
+        return endpointHash(sourceAddressOffset, sourcePort) ^ endpointHash(destinationAddressOffset, destinationPort);
+    }
+
+    public byte[] copyPayload() {
+        return Arrays.copyOfRange(data, payloadOffset, payloadOffset + payloadLength);
+    }
+
+    private boolean wrapEthernetFrame(byte[] data, int length) {
+        int offset = ETHERNET_HEADER_LENGTH;
+        if (length < offset) {
+            return false;
+        }
+        int etherType = readUnsignedShort(data, offset - 2);
+        while (etherType == ETHER_TYPE_VLAN || etherType == ETHER_TYPE_QINQ || etherType == ETHER_TYPE_QINQ_LEGACY) {
+            offset += VLAN_TAG_LENGTH;
+            if (length < offset) {
+                return false;
+            }
+            etherType = readUnsignedShort(data, offset - 2);
+        }
+        return wrapEtherType(etherType, data, offset, length);
+    }
+
+    private boolean wrapEtherType(int etherType, byte[] data, int offset, int length) {
+        if (etherType != ETHER_TYPE_IPV4 && etherType != ETHER_TYPE_IPV6) {
+            return false;
+        }
+        return wrapIpPacket(data, offset, length - offset);
+    }
+
+    private boolean wrapIpV4Packet(int offset, int end) {
+        final int headerLength = (data[offset] & 0x0F) * 4;
+        if (headerLength < IPV4_MINIMUM_HEADER_LENGTH || offset + headerLength > end) {
+            return false;
+        }
+        final int totalLength = readUnsignedShort(data, offset + 2);
+        if (totalLength != 0 && totalLength < headerLength) {
+            return false;
+        }
+        final boolean fragmented = (readUnsignedShort(data, offset + 6) & 0x3FFF) != 0;
+        if (fragmented || (data[offset + 9] & 0xFF) != PROTOCOL_TCP) {
+            return false;
+        }
+        addressLength = 4;
+        sourceAddressOffset = offset + 12;
+        destinationAddressOffset = offset + 16;
+        // a total length of 0 is seen for captured TCP segmentation offload packets
+        final int ipEnd = totalLength == 0 ? end : Math.min(end, offset + totalLength);
+        return wrapTcpPacket(offset + headerLength, ipEnd);
+    }
+
+    private boolean wrapIpV6Packet(int offset, int end) {
+        if (offset + IPV6_HEADER_LENGTH > end) {
+            return false;
+        }
+        final int ipPayloadLength = readUnsignedShort(data, offset + 4);
+        final int ipEnd = ipPayloadLength == 0 ? end : Math.min(end, offset + IPV6_HEADER_LENGTH + ipPayloadLength);
+        int nextHeader = data[offset + 6] & 0xFF;
+        int position = offset + IPV6_HEADER_LENGTH;
+        while (nextHeader == IPV6_HOP_BY_HOP || nextHeader == IPV6_ROUTING || nextHeader == IPV6_DESTINATION_OPTIONS
+            || nextHeader == IPV6_AUTHENTICATION) {
+            if (position + 2 > ipEnd) {
+                return false;
+            }
+            final int extensionLength = nextHeader == IPV6_AUTHENTICATION
+                ? ((data[position + 1] & 0xFF) + 2) * 4
+                : ((data[position + 1] & 0xFF) + 1) * 8;
+            nextHeader = data[position] & 0xFF;
+            position += extensionLength;
+        }
+        if (nextHeader != PROTOCOL_TCP) {
+            return false;
+        }
+        addressLength = 16;
+        sourceAddressOffset = offset + 8;
+        destinationAddressOffset = offset + 24;
+        return wrapTcpPacket(position, ipEnd);
+    }
+
+    private boolean wrapTcpPacket(int offset, int end) {
+        if (offset + TCP_MINIMUM_HEADER_LENGTH > end) {
+            return false;
+        }
+        final int headerLength = ((data[offset + 12] >> 4) & 0x0F) * 4;
+        if (headerLength < TCP_MINIMUM_HEADER_LENGTH || offset + headerLength > end) {
+            return false;
+        }
+        sourcePort = readUnsignedShort(data, offset);
+        destinationPort = readUnsignedShort(data, offset + 2);
+        sequenceNumber = ((long) readUnsignedShort(data, offset + 4) << 16) | readUnsignedShort(data, offset + 6);
+        flags = data[offset + 13] & 0xFF;
+        payloadOffset = offset + headerLength;
+        payloadLength = end - payloadOffset;
+        return true;
+    }
+
+    private String formatAddress(int offset) {
+        if (addressLength == 4) {
+            return (data[offset] & 0xFF) + "." + (data[offset + 1] & 0xFF) + "."
+                + (data[offset + 2] & 0xFF) + "." + (data[offset + 3] & 0xFF);
+        }
+        try {
+            return InetAddress.getByAddress(Arrays.copyOfRange(data, offset, offset + addressLength)).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("IPv6 address of unexpected length", e);
+        }
+    }
+
+    private int endpointHash(int addressOffset, int port) {
+        int hash = port;
+        for (int i = addressOffset; i < addressOffset + addressLength; i++) {
+            hash = 31 * hash + data[i];
+        }
+        return hash;
+    }
+
+    private static boolean isRawIp(int dataLinkType) {
+        return dataLinkType == DLT_RAW || dataLinkType == DLT_RAW_OPENBSD || dataLinkType == LINKTYPE_RAW;
+    }
+
+    private static int readUnsignedShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.captures;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import lombok.Getter;
+
+/**
+ * One direction of a TCP connection. Segments are placed by their sequence number: bytes that continue the stream are
+ * appended to an append-only buffer, segments arriving early are held back until the gap before them is filled, and
+ * bytes seen before (retransmissions, overlapping segments) are dropped. Sequence numbers are compared modulo 2^32,
+ * so wrapping streams are handled.
+ * <p>
+ * Consuming bytes only advances a read offset; the remaining bytes are moved to the front of the buffer when an append
+ * needs the room. The buffer is allocated with the first data and shrunk back to its initial capacity whenever it runs
+ * empty, so a connection which once carried a large message does not keep a large buffer while idle.
+ * <p>
+ * Streams whose start was not captured begin at the first segment carrying data. Not thread-safe.
+ */
+public class TcpStream {
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    /**
+     * Held back segments, keyed by their offset from the start of the stream
+     */
+    private final NavigableMap<Long, byte[]> pendingSegments = new TreeMap<>();
+    private long pendingBytes = 0;
+    private byte[] buffer = new byte[0];
+    /**
+     * Position of the first buffered byte not yet consumed
+     */
+    private int readOffset = 0;
+    private int bufferedLength = 0;
+    private boolean started = false;
+    private int initialSequenceNumber;
+    private int nextSequenceNumber;
+    /**
+     * Offset from the start of the stream of the first byte not yet received in order
+     */
+    private long nextStreamOffset = 0;
+    @Getter
+    private long duplicateBytes = 0;
+    /**
+     * Framing state of the HTTP messages in this stream
+     */
+    @Getter
+    private final HttpMessageFramer httpMessageFramer = new HttpMessageFramer();
+
+    /**
+     * Marks the start of the stream (the SYN segment consumes one sequence number).
+     */
+    public void synchronize(long synSequenceNumber) {
+        if (!started) {
+            started = true;
+            initialSequenceNumber = (int) synSequenceNumber;
+            nextSequenceNumber = initialSequenceNumber + 1;
+        }
+    }
+
+    /**
+     * True if the stream started with a different SYN, i.e. a SYN with this sequence number starts a new connection.
+     */
+    public boolean isStartedWithOtherSynThan(long synSequenceNumber) {
+        return started && initialSequenceNumber != (int) synSequenceNumber;
+    }
+
+    /**
+     * @return true if new contiguous bytes were appended to the buffer
+     */
+    public boolean addSegment(long sequenceNumber, byte[] payload) {
+        return addSegment(sequenceNumber, payload, 0, payload.length);
+    }
+
+    /**
+     * Adds the payload in the given range of {@code data}. The range is copied if it has to be held back, so the array
+     * may be reused by the caller afterwards.
+     *
+     * @return true if new contiguous bytes were appended to the buffer
+     */
+    public boolean addSegment(long sequenceNumber, byte[] data, int offset, int length) {
+        if (length == 0) {
+            return false;
+        }
+        if (!started) {
+            synchronize(sequenceNumber - 1);
+        }
+        final int distance = (int) sequenceNumber - nextSequenceNumber;
+        if ((long) distance + length <= 0) {
+            duplicateBytes += length;
+            return false;
+        }
+        if (distance > 0) {
+            final long streamOffset = nextStreamOffset + distance;
+            final byte[] pending = pendingSegments.get(streamOffset);
+            if (pending == null || pending.length < length) {
+                pendingSegments.put(streamOffset, Arrays.copyOfRange(data, offset, offset + length));
+                pendingBytes += length - (pending == null ? 0 : pending.length);
+            } else {
+                duplicateBytes += length;
+            }
+            return false;
+        }
+        duplicateBytes -= distance;
+        appendFrom(data, offset - distance, length + distance);
+        appendPendingSegments();
+        return true;
+    }
+
+    /**
+     * Number of contiguous bytes received and not yet consumed.
+     */
+    public int getBufferedLength() {
+        return bufferedLength;
+    }
+
+    public byte getBufferedByte(int index) {
+        if (index < 0 || index >= bufferedLength) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + bufferedLength);
+        }
+        return buffer[readOffset + index];
+    }
+
+    /**
+     * Copy of the contiguous bytes received and not yet consumed.
+     */
+    public byte[] getBufferedBytes() {
+        return Arrays.copyOfRange(buffer, readOffset, readOffset + bufferedLength);
+    }
+
+    /**
+     * Removes the first {@code length} buffered bytes.
+     *
+     * @return the removed bytes
+     */
+    public byte[] consume(int length) {
+        if (length < 0 || length > bufferedLength) {
+            throw new IndexOutOfBoundsException("Can not consume " + length + " of " + bufferedLength + " bytes");
+        }
+        final byte[] result = Arrays.copyOfRange(buffer, readOffset, readOffset + length);
+        readOffset += length;
+        bufferedLength -= length;
+        if (bufferedLength == 0) {
+            readOffset = 0;
+            if (buffer.length > INITIAL_CAPACITY) {
+                buffer = new byte[INITIAL_CAPACITY];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Bytes held in memory: the capacity of the buffer (not only the bytes not yet consumed) and the held back segments.
+     */
+    public long getHeldBytes() {
+        return buffer.length + pendingBytes;
+    }
+
+    public int getPendingSegmentCount() {
+        return pendingSegments.size();
+    }
+
+    private void appendPendingSegments() {
+        Map.Entry<Long, byte[]> next;
+        while ((next = pendingSegments.firstEntry()) != null && next.getKey() <= nextStreamOffset) {
+            pendingSegments.pollFirstEntry();
+            pendingBytes -= next.getValue().length;
+            final long overlap = nextStreamOffset - next.getKey();
+            if (overlap >= next.getValue().length) {
+                duplicateBytes += next.getValue().length;
+            } else {
+                duplicateBytes += overlap;
+                appendFrom(next.getValue(), (int) overlap, next.getValue().length - (int) overlap);
+            }
+        }
+    }
+
+    private void appendFrom(byte[] payload, int from, int length) {
+        ensureRoomFor(length);
+        System.arraycopy(payload, from, buffer, readOffset + bufferedLength, length);
+        bufferedLength += length;
+        nextSequenceNumber += length;
+        nextStreamOffset += length;
+    }
+
+    /**
+     * Compacts only if at most half of the buffer stays in use, otherwise grows it: every byte is moved a constant
+     * number of times on average, even for long pipelined streams.
+     */
+    private void ensureRoomFor(int length) {
+        if (readOffset + bufferedLength + length <= buffer.length) {
+            return;
+        }
+        final int required = bufferedLength + length;
+        if (required <= buffer.length / 2) {
+            System.arraycopy(buffer, readOffset, buffer, 0, bufferedLength);
+        } else {
+            final byte[] grown = new byte[Math.max(INITIAL_CAPACITY, Math.max(buffer.length * 2, required))];
+            System.arraycopy(buffer, readOffset, grown, 0, bufferedLength);
+            buffer = grown;
+        }
+        readOffset = 0;
+    }
+}
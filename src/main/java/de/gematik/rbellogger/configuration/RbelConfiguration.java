@@ -59,6 +59,12 @@ public class RbelConfiguration {
     private int skipParsingWhenMessageLargerThanMb = 16;
     @Builder.Default
     private boolean manageBuffer = false;
+    @Builder.Default
+    private int conversionThreads = 0;
+    @Builder.Default
+    private int conversionQueueSize = 1024;
+    @Builder.Default
+    private boolean activateMessageIndex = false;
 
     public RbelConfiguration addPostConversionListener(RbelConverterPlugin listener) {
         postConversionListener.add(listener);
@@ -103,6 +109,11 @@ public class RbelConfiguration {
         return this;
     }
 
+    public RbelConfiguration setActivateMessageIndex(boolean activateMessageIndex) {
+        this.activateMessageIndex = activateMessageIndex;
+        return this;
+    }
+
     public RbelLogger constructRbelLogger() {
         return RbelLogger.build(this);
     }
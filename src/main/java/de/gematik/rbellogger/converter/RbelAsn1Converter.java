@@ -35,19 +35,26 @@ import org.bouncycastle.asn1.*;
 @Slf4j
 public class RbelAsn1Converter implements RbelConverterPlugin {
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.startsWithDerSequence() || content.isBase64OrBase64UrlAlphabet();
+    }
+
     @Override
     public void consumeElement(RbelElement rbelElement, RbelConverter context) {
-        if (!tryToParseAsn1Structure(rbelElement.getRawContent(), context, rbelElement)) {
-            if (!safeConvertBase64Using(rbelElement, Base64.getDecoder(), context)) {
-                safeConvertBase64Using(rbelElement, Base64.getUrlDecoder(), context);
+        final byte[] rawContent = rbelElement.getRawContent();
+        if (!tryToParseAsn1Structure(rawContent, context, rbelElement)) {
+            if (!safeConvertBase64Using(rbelElement, rawContent, Base64.getDecoder(), context)) {
+                safeConvertBase64Using(rbelElement, rawContent, Base64.getUrlDecoder(), context);
             }
         }
     }
 
-    private boolean safeConvertBase64Using(RbelElement rbelElement, Decoder decoder, RbelConverter context) {
+    private boolean safeConvertBase64Using(RbelElement rbelElement, byte[] rawContent, Decoder decoder,
+        RbelConverter context) {
         byte[] data;
         try {
-            data = decoder.decode(rbelElement.getRawContent());
+            data = decoder.decode(rawContent);
         } catch (IllegalArgumentException e) {
             return false;
         }
@@ -29,6 +29,11 @@ import java.util.Optional;
 
 public class RbelBase64JsonConverter extends RbelJsonConverter {
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.isBase64OrBase64UrlAlphabet();
+    }
+
     @Override
     public void consumeElement(RbelElement rbel, RbelConverter context) {
         if (rbel.getRawStringContent().isEmpty()) {
@@ -22,6 +22,11 @@ import de.gematik.rbellogger.data.facet.RbelBearerTokenFacet;
 public class RbelBearerTokenConverter implements RbelConverterPlugin {
     public static final String BEARER_TOKEN_PREFIX = "Bearer ";
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.startsWith(BEARER_TOKEN_PREFIX);
+    }
+
     @Override
     public void consumeElement(RbelElement rbelElement, RbelConverter converter) {
         if (rbelElement.getRawStringContent().startsWith(BEARER_TOKEN_PREFIX)) {
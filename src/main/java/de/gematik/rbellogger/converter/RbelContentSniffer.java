@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.converter;
+
+import de.gematik.rbellogger.data.RbelContent;
+import de.gematik.rbellogger.data.RbelElement;
+import de.gematik.rbellogger.data.facet.RbelHttpHeaderFacet;
+import de.gematik.rbellogger.data.facet.RbelHttpMessageFacet;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Cheap signals about the content of an element (leading bytes, character classes, dot count, parent Content-Type).
+ * Computed at most once per conversion and shared between all plugins, so that {@link RbelConverter} can skip plugins
+ * whose {@link RbelConverterPlugin#isApplicable(RbelContentSniffer)} rejects the element without trying to parse it.
+ * <p>
+ * All checks operate on the raw bytes and only look at ASCII characters. The signals are therefore only
+ * conclusive for ASCII-compatible charsets, see {@link #isConclusive()}.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class RbelContentSniffer {
+
+    private static final Set<Charset> ASCII_COMPATIBLE_CHARSETS = Set.of(
+        StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.US_ASCII);
+    private static final long[] BASE64_ALPHABET = asciiBitmap(
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/=");
+    private static final long[] BASE64_URL_ALPHABET = asciiBitmap(
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_=");
+    private static final long WHITESPACE_AND_CONTROL_CHARACTERS = (1L << (' ' + 1)) - 1;
+    private static final byte DER_SEQUENCE_TAG = 0x30;
+
+    @Getter
+    private final RbelElement element;
+    private final RbelContent content;
+    @Getter
+    private final boolean conclusive;
+
+    private boolean scanned = false;
+    private final long[] asciiBitmap = new long[2];
+    private boolean nonAsciiPresent = false;
+    private int dotCount = 0;
+
+    public static RbelContentSniffer of(RbelElement element) {
+        final RbelContent content = element.getContent();
+        return new RbelContentSniffer(element, content,
+            content != null && ASCII_COMPATIBLE_CHARSETS.contains(element.getElementCharset()));
+    }
+
+    public int length() {
+        return content == null ? 0 : content.size();
+    }
+
+    public boolean isEmpty() {
+        return length() == 0;
+    }
+
+    public boolean hasParent() {
+        return element.getParentNode() != null;
+    }
+
+    public boolean startsWith(String prefix) {
+        return startsWith(prefix, 0);
+    }
+
+    /**
+     * Same as {@link #startsWith(String)}, but skips leading whitespace and control characters (like
+     * {@link String#trim()} does).
+     */
+    public boolean startsWithIgnoringLeadingWhitespace(String prefix) {
+        int offset = 0;
+        while (offset < length() && (content.get(offset) & 0xFF) <= ' ') {
+            offset++;
+        }
+        return startsWith(prefix, offset);
+    }
+
+    public boolean startsWithDerSequence() {
+        return length() > 0 && content.get(0) == DER_SEQUENCE_TAG;
+    }
+
+    public boolean contains(char asciiCharacter) {
+        scan();
+        return isSet(asciiBitmap, asciiCharacter);
+    }
+
+    public boolean containsAll(char... asciiCharacters) {
+        for (char asciiCharacter : asciiCharacters) {
+            if (!contains(asciiCharacter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(String sequence) {
+        if (sequence.isEmpty()) {
+            return true;
+        }
+        if (!contains(sequence.charAt(0))) {
+            return false;
+        }
+        for (int offset = 0; offset + sequence.length() <= length(); offset++) {
+            if (startsWith(sequence, offset)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whitespace in the sense of {@link String#trim()}, i.e. all characters up to and including the space.
+     */
+    public boolean containsWhitespace() {
+        scan();
+        return (asciiBitmap[0] & WHITESPACE_AND_CONTROL_CHARACTERS) != 0;
+    }
+
+    public int getDotCount() {
+        scan();
+        return dotCount;
+    }
+
+    public boolean isBase64Alphabet() {
+        return consistsOnlyOf(BASE64_ALPHABET);
+    }
+
+    public boolean isBase64UrlAlphabet() {
+        return consistsOnlyOf(BASE64_URL_ALPHABET);
+    }
+
+    public boolean isBase64OrBase64UrlAlphabet() {
+        return isBase64Alphabet() || isBase64UrlAlphabet();
+    }
+
+    public boolean parentHasContentType(String contentTypePrefix) {
+        return Optional.ofNullable(element.getParentNode())
+            .flatMap(parent -> parent.getFacet(RbelHttpMessageFacet.class))
+            .map(RbelHttpMessageFacet::getHeader)
+            .flatMap(header -> header.getFacet(RbelHttpHeaderFacet.class))
+            .map(header -> header.hasValueMatching("Content-Type", contentTypePrefix))
+            .orElse(false);
+    }
+
+    private boolean startsWith(String prefix, int offset) {
+        if (length() - offset < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (content.get(offset + i) != (byte) prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean consistsOnlyOf(long[] alphabet) {
+        scan();
+        return !isEmpty()
+            && !nonAsciiPresent
+            && (asciiBitmap[0] & ~alphabet[0]) == 0
+            && (asciiBitmap[1] & ~alphabet[1]) == 0;
+    }
+
+    private void scan() {
+        if (scanned) {
+            return;
+        }
+        for (int i = 0; i < length(); i++) {
+            final byte b = content.get(i);
+            if (b < 0) {
+                nonAsciiPresent = true;
+            } else {
+                asciiBitmap[b >>> 6] |= 1L << b;
+                if (b == '.') {
+                    dotCount++;
+                }
+            }
+        }
+        scanned = true;
+    }
+
+    private static boolean isSet(long[] bitmap, char character) {
+        return character < 128 && (bitmap[character >>> 6] & (1L << character)) != 0;
+    }
+
+    private static long[] asciiBitmap(String characters) {
+        final long[] result = new long[2];
+        for (char c : characters.toCharArray()) {
+            result[c >>> 6] |= 1L << c;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.converter;
+
+import de.gematik.rbellogger.data.RbelElement;
+import de.gematik.rbellogger.data.RbelHostname;
+import de.gematik.rbellogger.exceptions.RbelConversionException;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Converts raw messages on a worker pool and publishes them in arrival order. Every submitted message draws a ticket.
+ * Workers only run {@link RbelConverter#convertElement(byte[], RbelElement)}, the sequencer then hands the converted
+ * messages strictly in ticket order to {@link RbelConverter#doMessagePostConversion}, so sequence numbers, pairing,
+ * post conversion listeners and the message history behave exactly as with synchronous parsing.
+ * <p>
+ * The number of messages in flight (queued, converting or waiting for their predecessors) is bounded by
+ * {@link RbelConverter#getConversionQueueSize()}. When the bound is reached, {@link #submit} blocks the caller.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class RbelConversionPipeline {
+
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final RbelConverter converter;
+    private final Map<Long, PendingMessage> convertedMessages = new ConcurrentHashMap<>();
+    private final AtomicLong nextTicket = new AtomicLong();
+    private final Object sequencerLock = new Object();
+    private long nextTicketToPublish = 0;
+    private Semaphore capacity;
+    private ThreadPoolExecutor workers;
+
+    CompletableFuture<RbelElement> submit(byte[] content, RbelHostname sender, RbelHostname receiver,
+        Optional<ZonedDateTime> transmissionTime) {
+        final ThreadPoolExecutor executor = getOrStartWorkers();
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RbelConversionException("Interrupted while waiting for free capacity in the conversion queue", e);
+        }
+        final PendingMessage pendingMessage = new PendingMessage(content, sender, receiver, transmissionTime);
+        final long ticket = nextTicket.getAndIncrement();
+        try {
+            executor.execute(() -> convertAndPublish(ticket, pendingMessage));
+        } catch (RejectedExecutionException e) {
+            pendingMessage.conversionError = e;
+            enqueueForPublishing(ticket, pendingMessage);
+        }
+        return pendingMessage.result;
+    }
+
+    void waitForPendingMessages() {
+        final long lastSubmittedTicket = nextTicket.get();
+        synchronized (sequencerLock) {
+            while (nextTicketToPublish < lastSubmittedTicket) {
+                try {
+                    sequencerLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RbelConversionException("Interrupted while waiting for pending messages", e);
+                }
+            }
+        }
+    }
+
+    synchronized void shutdown() {
+        if (workers != null) {
+            workers.shutdown();
+            workers = null;
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getOrStartWorkers() {
+        if (workers == null) {
+            final int threads = Math.max(1, converter.getConversionThreads());
+            final String poolName = "rbel-conversion-" + POOL_COUNTER.incrementAndGet() + "-";
+            final AtomicInteger threadCounter = new AtomicInteger();
+            if (capacity == null) {
+                capacity = new Semaphore(Math.max(1, converter.getConversionQueueSize()));
+            }
+            workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, poolName + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            workers.allowCoreThreadTimeOut(true);
+        }
+        return workers;
+    }
+
+    private void convertAndPublish(long ticket, PendingMessage pendingMessage) {
+        try {
+            pendingMessage.convertedElement = converter.convertElement(pendingMessage.content, null);
+        } catch (RuntimeException e) {
+            pendingMessage.conversionError = e;
+        }
+        enqueueForPublishing(ticket, pendingMessage);
+    }
+
+    private void enqueueForPublishing(long ticket, PendingMessage pendingMessage) {
+        convertedMessages.put(ticket, pendingMessage);
+        synchronized (sequencerLock) {
+            PendingMessage next;
+            while ((next = convertedMessages.remove(nextTicketToPublish)) != null) {
+                nextTicketToPublish++;
+                try {
+                    next.publish(converter);
+                } finally {
+                    capacity.release();
+                }
+            }
+            sequencerLock.notifyAll();
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class PendingMessage {
+
+        private final byte[] content;
+        private final RbelHostname sender;
+        private final RbelHostname receiver;
+        private final Optional<ZonedDateTime> transmissionTime;
+        private final CompletableFuture<RbelElement> result = new CompletableFuture<>();
+        private RbelElement convertedElement;
+        private RuntimeException conversionError;
+
+        private void publish(RbelConverter converter) {
+            if (conversionError != null) {
+                log.warn("Dropping message, conversion failed", conversionError);
+                result.completeExceptionally(conversionError);
+                return;
+            }
+            try {
+                result.complete(converter.doMessagePostConversion(convertedElement, sender, receiver, transmissionTime));
+            } catch (RuntimeException e) {
+                log.warn("Exception during post conversion of message", e);
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -18,6 +18,9 @@ package de.gematik.rbellogger.converter;
 
 import de.gematik.rbellogger.data.RbelElement;
 import de.gematik.rbellogger.data.RbelHostname;
+import de.gematik.rbellogger.data.RbelMessageHistory;
+import de.gematik.rbellogger.data.RbelMessageIndex;
+import de.gematik.rbellogger.data.RbelMessageQuery;
 import de.gematik.rbellogger.data.facet.RbelTcpIpMessageFacet;
 import de.gematik.rbellogger.data.facet.*;
 import de.gematik.rbellogger.key.RbelKeyManager;
@@ -30,6 +33,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.Security;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
@@ -43,7 +47,12 @@ public class RbelConverter {
     private int rbelBufferSizeInMb = 1024;
     @Builder.Default
     private boolean manageBuffer = false;
-    private final List<RbelElement> messageHistory = new ArrayList<>();
+    @Getter(AccessLevel.NONE)
+    private final RbelRequestPairingIndex requestPairingIndex = new RbelRequestPairingIndex();
+    private final RbelMessageIndex messageIndex = new RbelMessageIndex();
+    private final RbelMessageHistory messageHistory = new RbelMessageHistory()
+        .addRemovalListener(requestPairingIndex::remove)
+        .addRemovalListener(messageIndex::remove);
     private final List<RbelBundleCriterion> bundleCriterionList = new ArrayList<>();
     private final RbelKeyManager rbelKeyManager;
     private final RbelValueShader rbelValueShader = new RbelValueShader();
@@ -73,6 +82,14 @@ public class RbelConverter {
     private long messageSequenceNumber = 0;
     @Builder.Default
     private int skipParsingWhenMessageLargerThanMb = -1;
+    @Builder.Default
+    private int conversionThreads = 0;
+    @Builder.Default
+    private int conversionQueueSize = 1024;
+    @Builder.Default
+    private boolean activateMessageIndex = false;
+    @Getter(AccessLevel.NONE)
+    private final RbelConversionPipeline conversionPipeline = new RbelConversionPipeline(this);
 
     static {
         Security.addProvider(new BouncyCastleProvider());
@@ -98,12 +115,16 @@ public class RbelConverter {
         log.trace("Converting {}...", rawInput);
         final RbelElement convertedInput = filterInputThroughPreConversionMappers(rawInput);
         boolean elementIsOversized = skipParsingWhenMessageLargerThanMb > -1
-            && (convertedInput.getRawContent().length > skipParsingWhenMessageLargerThanMb*1024*1024);
+            && (convertedInput.getSize() > skipParsingWhenMessageLargerThanMb*1024*1024);
+        final RbelContentSniffer contentSniffer = RbelContentSniffer.of(convertedInput);
         for (RbelConverterPlugin plugin : converterPlugins) {
             if (!plugin.ignoreOversize() && elementIsOversized) {
              continue;
             }
             try {
+                if (contentSniffer.isConclusive() && !plugin.isApplicable(contentSniffer)) {
+                    continue;
+                }
                 plugin.consumeElement(convertedInput, this);
             } catch (RuntimeException e) {
                 final String msg = "Exception during conversion with plugin '" + plugin.getClass().getName()
@@ -121,18 +142,6 @@ public class RbelConverter {
         return convertedInput;
     }
 
-    private Optional<RbelElement> findLastRequest() {
-        final List<RbelElement> messageHistory = getMessageHistory();
-        for (int i = messageHistory.size() - 1; i >= 0; i--) {
-            if (this.messageHistory.get(i)
-                .getFacet(RbelHttpRequestFacet.class)
-                .isPresent()) {
-                return Optional.ofNullable(this.messageHistory.get(i));
-            }
-        }
-        return Optional.empty();
-    }
-
     public RbelElement filterInputThroughPreConversionMappers(final RbelElement input) {
         RbelElement value = input;
         for (BiFunction<RbelElement, RbelConverter, RbelElement> mapper : preConversionMappers.entrySet().stream()
@@ -179,11 +188,40 @@ public class RbelConverter {
         return doMessagePostConversion(rbelMessage, sender, receiver, transmissionTime);
     }
 
+    /**
+     * Pipelined variant of {@link #parseMessage(byte[], RbelHostname, RbelHostname, Optional)}. If
+     * {@link #getConversionThreads()} is greater than zero the message is converted on a worker pool, while sequence
+     * numbers, pairing, post conversion listeners and the message history are handled by a single sequencer in the
+     * order in which the messages were submitted. Otherwise the message is parsed synchronously.
+     * <p>
+     * Note that conversions run concurrently: messages whose decryption relies on keys derived from preceding messages
+     * (e.g. a VAU handshake) might be converted before these keys are known. Use a single conversion thread for such
+     * traffic. Do not mix with the synchronous {@code parseMessage} methods, as those bypass the sequencer.
+     */
+    public CompletableFuture<RbelElement> parseMessageAsync(@NonNull byte[] content, RbelHostname sender,
+        RbelHostname receiver, Optional<ZonedDateTime> transmissionTime) {
+        if (conversionThreads <= 0) {
+            return CompletableFuture.completedFuture(parseMessage(content, sender, receiver, transmissionTime));
+        }
+        return conversionPipeline.submit(content, sender, receiver, transmissionTime);
+    }
+
+    /**
+     * Blocks until all messages submitted via {@link #parseMessageAsync} so far are published to the message history.
+     */
+    public void waitForAllPendingMessages() {
+        conversionPipeline.waitForPendingMessages();
+    }
+
+    public void shutdownConversionPipeline() {
+        conversionPipeline.shutdown();
+    }
+
     public RbelElement doMessagePostConversion(@NonNull final RbelElement rbelElement, RbelHostname sender, RbelHostname receiver, Optional<ZonedDateTime> transmissionTime) {
         if (rbelElement.getFacet(RbelHttpResponseFacet.class)
             .map(resp -> resp.getRequest() == null)
             .orElse(false)) {
-            final Optional<RbelElement> request = findLastRequest();
+            final Optional<RbelElement> request = requestPairingIndex.pollRequestFor(sender, receiver);
             rbelElement.addOrReplaceFacet(
                 rbelElement.getFacet(RbelHttpResponseFacet.class)
                     .map(RbelHttpResponseFacet::toBuilder)
@@ -195,6 +233,14 @@ public class RbelConverter {
                 .ifPresent(reqFacet -> request.get().addOrReplaceFacet(reqFacet.toBuilder()
                     .response(rbelElement)
                     .build()));
+        } else {
+            rbelElement.getFacet(RbelHttpResponseFacet.class)
+                .map(RbelHttpResponseFacet::getRequest)
+                .ifPresent(requestPairingIndex::markAnswered);
+        }
+
+        if (rbelElement.hasFacet(RbelHttpRequestFacet.class)) {
+            requestPairingIndex.addRequest(rbelElement, sender, receiver);
         }
 
         rbelElement.addFacet(RbelTcpIpMessageFacet.builder()
@@ -208,11 +254,32 @@ public class RbelConverter {
         rbelElement.triggerPostConversionListener(this);
         synchronized (messageHistory) {
             messageHistory.add(rbelElement);
+            if (activateMessageIndex) {
+                messageIndex.add(rbelElement);
+            }
         }
         manageRbelBufferSize();
         return rbelElement;
     }
 
+    /**
+     * Messages of the history matching the query. Uses the {@link RbelMessageIndex} if it is activated, otherwise the
+     * history is scanned.
+     */
+    public List<RbelElement> findMessages(RbelMessageQuery query) {
+        if (activateMessageIndex) {
+            return messageIndex.find(query);
+        }
+        final List<RbelElement> snapshot = messageHistory.snapshot();
+        if (query.isNewestFirst()) {
+            Collections.reverse(snapshot);
+        }
+        return snapshot.stream()
+            .filter(query::matches)
+            .limit(query.getLimit())
+            .collect(Collectors.toList());
+    }
+
     public RbelConverter addPostConversionListener(RbelConverterPlugin postConversionListener) {
         postConversionListeners.add(postConversionListener);
         return this;
@@ -225,33 +292,19 @@ public class RbelConverter {
     public void manageRbelBufferSize() {
         if (manageBuffer) {
             synchronized (messageHistory) {
-                if (getRbelBufferSizeInMb() <= 0 && !getMessageHistory().isEmpty()) {
-                    getMessageHistory().clear();
+                if (getRbelBufferSizeInMb() <= 0 && !messageHistory.isEmpty()) {
+                    messageHistory.clear();
                 }
-                if (getRbelBufferSizeInMb() > 0 ) {
-                    long size = getMessageHistorySize();
-                    long exceedingLimit = getExceedingLimit(size);
-                    if (exceedingLimit > 0) {
+                if (getRbelBufferSizeInMb() > 0) {
+                    final long bufferSizeLimit = (long) getRbelBufferSizeInMb() * 1024 * 1024;
+                    if (messageHistory.getTotalSize() > bufferSizeLimit) {
                         log.trace("Buffer is currently at {} Mb which exceeds the limit of {} Mb",
-                            size / (1024 ^ 2), getRbelBufferSizeInMb());
-                    }
-                    while (exceedingLimit > 0 && !getMessageHistory().isEmpty()) {
-                        log.trace("Exceeded buffer size, dropping oldest message in history");
-                        exceedingLimit -= getMessageHistory().get(0).getSize();
-                        getMessageHistory().remove(0);
+                            messageHistory.getTotalSize() / (1024 * 1024), getRbelBufferSizeInMb());
+                        final int droppedMessages = messageHistory.evictOldestWhileLargerThan(bufferSizeLimit);
+                        log.trace("Exceeded buffer size, dropped {} oldest messages in history", droppedMessages);
                     }
                 }
             }
         }
     }
-
-    private long getMessageHistorySize() {
-        return getMessageHistory().stream()
-            .mapToLong(RbelElement::getSize)
-            .sum();
-    }
-
-    private long getExceedingLimit(long messageHistorySize) {
-        return messageHistorySize-((long) getRbelBufferSizeInMb() * 1024 * 1024);
-    }
 }
@@ -25,4 +25,13 @@ public interface RbelConverterPlugin {
     default boolean ignoreOversize() {
         return false;
     }
+
+    /**
+     * Cheap precondition-check, evaluated before {@link #consumeElement(RbelElement, RbelConverter)} is called. Plugins
+     * can reject elements which they can never convert (wrong leading bytes, illegal characters...) without parsing
+     * them. Must never return false for content the plugin is able to convert.
+     */
+    default boolean isApplicable(RbelContentSniffer content) {
+        return true;
+    }
 }
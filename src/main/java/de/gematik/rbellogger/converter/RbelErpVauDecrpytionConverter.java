@@ -48,6 +48,11 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 @Slf4j
 public class RbelErpVauDecrpytionConverter implements RbelConverterPlugin {
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.length() >= CryptoUtils.GCM_IV_LENGTH_IN_BYTES + CryptoUtils.GCM_TAG_LENGTH_IN_BYTES;
+    }
+
     @Override
     public void consumeElement(RbelElement element, RbelConverter context) {
         log.trace("Trying to decipher '{}'...", element.getRawStringContent());
@@ -94,17 +99,18 @@ public class RbelErpVauDecrpytionConverter implements RbelConverterPlugin {
             .filter(key -> key.getKey() instanceof ECPrivateKey
                 || key.getKey() instanceof SecretKey)
             .collect(Collectors.toList());
+        final byte[] encryptedContent = element.getRawContent();
         for (RbelKey rbelKey : potentialVauKeys) {
-            final Optional<byte[]> decryptedBytes = decrypt(element.getRawContent(), rbelKey.getKey());
+            final Optional<byte[]> decryptedBytes = decrypt(encryptedContent, rbelKey.getKey());
             if (decryptedBytes.isPresent()) {
                 try {
                     log.trace("Succesfully deciphered VAU message! ({})", new String(decryptedBytes.get(), UTF_8));
                     if (isVauResponse(decryptedBytes)) {
                         return buildVauMessageFromCleartextResponse(converter, decryptedBytes.get(),
-                            element.getRawContent(), rbelKey, element);
+                            encryptedContent, rbelKey, element);
                     } else {
                         return buildVauMessageFromCleartextRequest(converter, decryptedBytes.get(),
-                            element.getRawContent(), rbelKey, element);
+                            encryptedContent, rbelKey, element);
                     }
                 } catch (RuntimeException e) {
                     log.error("Exception while deciphering VAU message:", e);
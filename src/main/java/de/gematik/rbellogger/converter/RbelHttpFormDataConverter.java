@@ -32,6 +32,11 @@ import org.apache.commons.lang3.tuple.Pair;
 
 public class RbelHttpFormDataConverter implements RbelConverterPlugin {
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.parentHasContentType("application/x-www-form-urlencoded");
+    }
+
     @Override
     public void consumeElement(RbelElement rbelElement, RbelConverter converter) {
         if (isBodyOfFormDataRequest(rbelElement)) {
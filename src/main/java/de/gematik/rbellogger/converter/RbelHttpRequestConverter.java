@@ -17,13 +17,12 @@
 package de.gematik.rbellogger.converter;
 
 import com.google.common.net.MediaType;
+import de.gematik.rbellogger.data.RbelContent;
 import de.gematik.rbellogger.data.RbelElement;
 import de.gematik.rbellogger.data.facet.*;
-import de.gematik.rbellogger.util.RbelArrayUtils;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import java.util.Optional;
 
 import lombok.extern.slf4j.Slf4j;
@@ -39,6 +38,15 @@ public class RbelHttpRequestConverter extends RbelHttpResponseConverter {
         return true;
     }
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.contains('\n')
+            && (content.startsWithIgnoringLeadingWhitespace("GET ")
+            || content.startsWithIgnoringLeadingWhitespace("POST ")
+            || content.startsWithIgnoringLeadingWhitespace("PUT ")
+            || content.startsWithIgnoringLeadingWhitespace("DELETE "));
+    }
+
     @Override
     public void consumeElement(final RbelElement targetElement, final RbelConverter converter) {
         final String content = targetElement.getRawStringContent();
@@ -74,9 +82,9 @@ public class RbelHttpRequestConverter extends RbelHttpResponseConverter {
             throw new RuntimeException("Encountered ill-formatted path: " + path);
         }
 
-        final byte[] bodyData = extractBodyData(targetElement.getRawContent(), messageHeader.length() + 4,
+        final RbelContent bodyData = extractBodyData(targetElement.getContent(), messageHeader.length() + 4,
             headerElement.getFacetOrFail(RbelHttpHeaderFacet.class), eol);
-        final RbelElement bodyElement = new RbelElement(bodyData, targetElement,
+        final RbelElement bodyElement = RbelElement.fromContent(bodyData, targetElement,
             findCharsetInHeader(headerElement.getFacetOrFail(RbelHttpHeaderFacet.class)));
 
         final RbelHttpRequestFacet httpRequest = RbelHttpRequestFacet.builder()
@@ -101,13 +109,12 @@ public class RbelHttpRequestConverter extends RbelHttpResponseConverter {
         return "\n";
     }
 
-    private byte[] extractBodyData(byte[] inputData, int separator, RbelHttpHeaderFacet headerMap, String eol) {
+    private RbelContent extractBodyData(RbelContent inputData, int separator, RbelHttpHeaderFacet headerMap, String eol) {
         if (headerMap.hasValueMatching("Transfer-Encoding", "chunked")) {
-            separator = new String(inputData).indexOf(eol, separator) + eol.length();
-            return Arrays.copyOfRange(inputData, separator, RbelArrayUtils
-                .indexOf(inputData, ("0" + eol).getBytes(US_ASCII), separator));
+            separator = inputData.indexOf(eol.getBytes(US_ASCII), separator) + eol.length();
+            return inputData.subContent(separator, inputData.indexOf(("0" + eol).getBytes(US_ASCII), separator));
         } else {
-            return Arrays.copyOfRange(inputData, Math.min(inputData.length, separator), inputData.length);
+            return inputData.subContent(Math.min(inputData.size(), separator), inputData.size());
         }
     }
 }
@@ -17,10 +17,10 @@
 package de.gematik.rbellogger.converter;
 
 import com.google.common.net.MediaType;
+import de.gematik.rbellogger.data.RbelContent;
 import de.gematik.rbellogger.data.RbelElement;
 import de.gematik.rbellogger.data.RbelMultiMap;
 import de.gematik.rbellogger.data.facet.*;
-import de.gematik.rbellogger.util.RbelArrayUtils;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.charset.Charset;
@@ -45,6 +45,11 @@ public class RbelHttpResponseConverter implements RbelConverterPlugin {
         return true;
     }
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.startsWith("HTTP");
+    }
+
     @Override
     public void consumeElement(final RbelElement targetElement, final RbelConverter converter) {
         final String content = targetElement.getRawStringContent();
@@ -62,9 +67,9 @@ public class RbelHttpResponseConverter implements RbelConverterPlugin {
 
         final RbelElement headerElement = extractHeaderFromMessage(targetElement, converter, eol);
 
-        final byte[] bodyData = extractBodyData(targetElement, separator,
+        final RbelContent bodyData = extractBodyData(targetElement, separator,
             headerElement.getFacet(RbelHttpHeaderFacet.class).get(), eol);
-        final RbelElement bodyElement = new RbelElement(bodyData, targetElement,
+        final RbelElement bodyElement = RbelElement.fromContent(bodyData, targetElement,
             findCharsetInHeader(headerElement.getFacetOrFail(RbelHttpHeaderFacet.class)));
         final RbelElement responseCode = extractResponseCodeFromMessage(targetElement, content);
         final RbelHttpResponseFacet rbelHttpResponse = RbelHttpResponseFacet.builder()
@@ -159,15 +164,15 @@ public class RbelHttpResponseConverter implements RbelConverterPlugin {
         }
     }
 
-    private byte[] extractBodyData(RbelElement rbel, int separator, RbelHttpHeaderFacet headerMap, String eol) {
-        byte[] inputData = rbel.getRawContent();
+    private RbelContent extractBodyData(RbelElement rbel, int separator, RbelHttpHeaderFacet headerMap, String eol) {
+        final RbelContent inputData = rbel.getContent();
 
         if (headerMap.hasValueMatching("Transfer-Encoding", "chunked")) {
             separator = rbel.getRawStringContent().indexOf(eol, separator) + eol.length();
-            return Arrays.copyOfRange(inputData, Math.min(inputData.length, separator),
-                RbelArrayUtils.indexOf(inputData, (eol + "0" + eol).getBytes(rbel.getElementCharset()), separator));
+            return inputData.subContent(Math.min(inputData.size(), separator),
+                inputData.indexOf((eol + "0" + eol).getBytes(rbel.getElementCharset()), separator));
         } else {
-            return Arrays.copyOfRange(inputData, Math.min(inputData.length, separator), inputData.length);
+            return inputData.subContent(Math.min(inputData.size(), separator), inputData.size());
         }
     }
 
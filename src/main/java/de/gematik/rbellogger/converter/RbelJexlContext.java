@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.converter;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.apache.commons.jexl3.JexlContext;
+
+/**
+ * JEXL context whose variables are computed on first access and memoised for the lifetime of the context (i.e. one
+ * evaluation). Expressions which only read cheap variables like {@code key} or {@code content} therefore never resolve
+ * the surrounding messages. Not thread-safe.
+ */
+public class RbelJexlContext implements JexlContext, JexlContext.NamespaceResolver {
+
+    private final Map<String, Supplier<?>> definitions = new LinkedHashMap<>();
+    private final Map<String, Object> values = new HashMap<>();
+    private final Map<String, Object> namespaces = new HashMap<>();
+
+    RbelJexlContext define(String name, Supplier<?> definition) {
+        definitions.put(name, definition);
+        return this;
+    }
+
+    RbelJexlContext defineNamespace(String name, Object functions) {
+        namespaces.put(name, functions);
+        return this;
+    }
+
+    @Override
+    public Object resolveNamespace(String name) {
+        return namespaces.get(name);
+    }
+
+    @Override
+    public Object get(String name) {
+        if (values.containsKey(name)) {
+            return values.get(name);
+        }
+        final Supplier<?> definition = definitions.get(name);
+        if (definition == null) {
+            return null;
+        }
+        final Object value = definition.get();
+        values.put(name, value);
+        return value;
+    }
+
+    @Override
+    public void set(String name, Object value) {
+        values.put(name, value);
+    }
+
+    @Override
+    public boolean has(String name) {
+        return values.containsKey(name) || definitions.containsKey(name);
+    }
+
+    /**
+     * Evaluates all variables.
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> result = new HashMap<>();
+        definitions.keySet().forEach(name -> result.put(name, get(name)));
+        result.putAll(values);
+        return result;
+    }
+}
@@ -17,25 +17,54 @@
 package de.gematik.rbellogger.converter;
 
 import static de.gematik.rbellogger.RbelOptions.ACTIVATE_JEXL_DEBUGGING;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import de.gematik.rbellogger.data.RbelElement;
 import de.gematik.rbellogger.data.RbelMultiMap;
 import de.gematik.rbellogger.data.facet.*;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.jexl3.JexlBuilder;
+import org.apache.commons.jexl3.JexlEngine;
 import org.apache.commons.jexl3.JexlExpression;
-import org.apache.commons.jexl3.MapContext;
 
 @Slf4j
 @Data
 public class RbelJexlExecutor {
 
-    private static final Map<Integer, JexlExpression> JEXL_EXPRESSION_CACHE = new HashMap<>();
+    private static final int MAXIMUM_CACHED_EXPRESSIONS = 4096;
+    private static final JexlEngine JEXL_ENGINE = new JexlBuilder().create();
+    private static final Cache<String, JexlExpression> JEXL_EXPRESSION_CACHE = CacheBuilder.newBuilder()
+        .maximumSize(MAXIMUM_CACHED_EXPRESSIONS)
+        .recordStats()
+        .build();
+
+    private static final int MAXIMUM_CACHED_MESSAGES = 1024;
+    private static final Cache<RbelElement, VersionedJexlMessage> JEXL_MESSAGE_CACHE = CacheBuilder.newBuilder()
+        .weakKeys()
+        .maximumSize(MAXIMUM_CACHED_MESSAGES)
+        .build();
+
+    /**
+     * Hit, miss and eviction counters of the cache of parsed JEXL expressions (shared by all executors).
+     */
+    public static CacheStats getExpressionCacheStats() {
+        return JEXL_EXPRESSION_CACHE.stats();
+    }
 
     public boolean matchesAsJexlExpression(Object element, String jexlExpression) {
         return matchesAsJexlExpression(element, jexlExpression, Optional.empty());
@@ -44,9 +73,9 @@ public class RbelJexlExecutor {
     public boolean matchesAsJexlExpression(Object element, String jexlExpression, Optional<String> key) {
         try {
             final JexlExpression expression = buildExpression(evaluateRbelPathExpressions(jexlExpression, element));
-            final MapContext mapContext = new MapContext(buildJexlMapContext(element, key));
+            final RbelJexlContext jexlContext = buildJexlContext(element, key);
 
-            final boolean result = Optional.of(expression.evaluate(mapContext))
+            final boolean result = Optional.ofNullable(expression.evaluate(jexlContext))
                 .filter(Boolean.class::isInstance)
                 .map(Boolean.class::cast)
                 .orElse(false);
@@ -83,65 +112,82 @@ public class RbelJexlExecutor {
         }
     }
 
+    /**
+     * Legacy syntax: bare RbelPath tokens (e.g. {@code $.header.Host == 'foo'}) are rewritten into calls of the
+     * {@code rbel} namespace, so the resulting expression does not depend on the element and is only compiled once.
+     */
     private String evaluateRbelPathExpressions(String jexlExpression, Object element) {
         if (!(element instanceof RbelElement)
             || !jexlExpression.contains("$.")) {
             return jexlExpression;
         }
-        String rbelPath = Arrays.stream(jexlExpression.split(" "))
-            .filter(str -> str.startsWith("$.")
-                && str.length() > 2)
-            .findAny().orElseThrow();
-        return jexlExpression.replace(rbelPath, "\"" + ((RbelElement) element).findElement(rbelPath)
-            .map(RbelElement::getRawStringContent)
-            .orElse("") + "\"");
+        return Arrays.stream(jexlExpression.split(" ", -1))
+            .map(token -> token.startsWith("$.") && token.length() > 2
+                ? RbelPathJexlFunctions.NAMESPACE + ":path(\"" + escapeJexlString(token) + "\")"
+                : token)
+            .collect(Collectors.joining(" "));
+    }
+
+    private static String escapeJexlString(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
     }
 
     private JexlExpression buildExpression(String jexlExpression) {
-        final int hashCode = jexlExpression.hashCode();
-        if (JEXL_EXPRESSION_CACHE.containsKey(hashCode)) {
-            return JEXL_EXPRESSION_CACHE.get(hashCode);
+        final JexlExpression cached = JEXL_EXPRESSION_CACHE.getIfPresent(jexlExpression);
+        if (cached != null) {
+            return cached;
         }
-        final JexlExpression expression = new JexlBuilder().create().createExpression(jexlExpression);
-        JEXL_EXPRESSION_CACHE.put(hashCode, expression);
+        final JexlExpression expression = JEXL_ENGINE.createExpression(jexlExpression);
+        JEXL_EXPRESSION_CACHE.put(jexlExpression, expression);
         return expression;
     }
 
     public Map<String, Object> buildJexlMapContext(Object element, Optional<String> key) {
-        final Map<String, Object> mapContext = new HashMap<>();
-        final Optional<RbelElement> parentElement = getParentElement(element);
+        return buildJexlContext(element, key).toMap();
+    }
 
-        mapContext.put("element", element);
-        mapContext.put("parent", parentElement.orElse(null));
-        final Optional<RbelElement> message = findMessage(element);
-        mapContext.put("message", message
+    /**
+     * Same variables as {@link #buildJexlMapContext(Object, Optional)}, but each one is only computed when the
+     * expression reads it.
+     */
+    public RbelJexlContext buildJexlContext(Object element, Optional<String> key) {
+        final Supplier<Optional<RbelElement>> parentElement = Suppliers.memoize(() -> getParentElement(element));
+        final Supplier<Optional<RbelElement>> message = Suppliers.memoize(() -> findMessage(element));
+        final Supplier<Optional<RbelElement>> requestMessage =
+            Suppliers.memoize(() -> tryToFindRequestMessage(element));
+        final Supplier<Boolean> isRequest = Suppliers.memoize(() -> requestMessage.get()
+            .filter(msg -> message.get().isPresent())
+            .map(msg -> message.get().get() == msg)
+            .orElse(false));
+
+        final RbelJexlContext context = new RbelJexlContext();
+        if (element instanceof RbelElement) {
+            context.defineNamespace(RbelPathJexlFunctions.NAMESPACE, new RbelPathJexlFunctions((RbelElement) element));
+        }
+        context.define("element", () -> element);
+        context.define("parent", () -> parentElement.get().orElse(null));
+        context.define("message", () -> message.get()
             .map(this::convertToJexlMessage)
             .orElse(null));
         if (element instanceof RbelElement) {
-            mapContext.put("charset", ((RbelElement) element).getElementCharset().displayName());
-            mapContext.put("@", buildPositionDescriptor((RbelElement) element));
+            context.define("charset", () -> ((RbelElement) element).getElementCharset().displayName());
+            context.define("@", () -> buildPositionDescriptor((RbelElement) element));
         }
 
-        final Optional<RbelElement> requestMessage = tryToFindRequestMessage(element);
-        final Optional<JexlMessage> responseMessage = tryToFindResponseMessage(element)
-            .map(this::convertToJexlMessage);
-        if (requestMessage
-            .filter(msg -> message.isPresent())
-            .map(msg -> message.get() == msg)
-            .orElse(false)) {
-            mapContext.put("request", mapContext.get("message"));
-            mapContext.put("response", responseMessage.orElse(null));
-            mapContext.put("isRequest", true);
-            mapContext.put("isResponse", false);
-        } else {
-            mapContext.put("request", requestMessage
+        context.define("request", () -> {
+            if (isRequest.get()) {
+                return context.get("message");
+            }
+            return requestMessage.get()
                 .map(this::convertToJexlMessage)
-                .orElse(null));
-            mapContext.put("response", responseMessage.orElse(null));
-            mapContext.put("isRequest", false);
-            mapContext.put("isResponse", true);
-        }
-        mapContext.put("facets", Optional.ofNullable(element)
+                .orElse(null);
+        });
+        context.define("response", () -> tryToFindResponseMessage(element)
+            .map(this::convertToJexlMessage)
+            .orElse(null));
+        context.define("isRequest", isRequest);
+        context.define("isResponse", () -> !isRequest.get());
+        context.define("facets", () -> Optional.ofNullable(element)
             .filter(RbelElement.class::isInstance)
             .map(RbelElement.class::cast)
             .map(RbelElement::getFacets)
@@ -150,22 +196,22 @@ public class RbelJexlExecutor {
             .map(Object::getClass)
             .map(Class::getSimpleName)
             .collect(Collectors.toSet()));
-        mapContext.put("key", key
-            .or(() -> tryToFindKeyFromParentMap(element, parentElement))
+        context.define("key", () -> key
+            .or(() -> tryToFindKeyFromParentMap(element, parentElement.get()))
             .orElse(null));
-        mapContext.put("path", Optional.ofNullable(element)
+        context.define("path", () -> Optional.ofNullable(element)
             .filter(RbelElement.class::isInstance)
             .map(RbelElement.class::cast)
             .map(RbelElement::findNodePath)
             .orElse(null));
-        mapContext.put("type", element.getClass().getSimpleName());
+        context.define("type", () -> element.getClass().getSimpleName());
         if (element instanceof RbelElement) {
-            mapContext.put("content", ((RbelElement) element).getRawStringContent());
+            context.define("content", ((RbelElement) element)::getRawStringContent);
         } else {
-            mapContext.put("content", element.toString());
+            context.define("content", element::toString);
         }
 
-        return mapContext;
+        return context;
     }
 
     private Map<String, String> buildPositionDescriptor(RbelElement element) {
@@ -217,8 +263,27 @@ public class RbelJexlExecutor {
         }
     }
 
+    /**
+     * The method, url, status code and headers of a message are shared by all evaluations in the trees of the message
+     * and of its paired request or response. They are rebuilt once a facet of the message is added or replaced. The
+     * body is looked up per evaluation: the cache is static and only weakly keyed, so its values must not reference the
+     * message (which would keep it alive beyond the message history) or copies of its body. The body is only decoded
+     * into a string if an expression reads {@code bodyAsString}.
+     */
     private JexlMessage convertToJexlMessage(RbelElement element) {
-        final Optional<RbelElement> bodyOptional = element.getFirst("body");
+        final long facetVersion = element.getFacetVersion();
+        final VersionedJexlMessage cached = JEXL_MESSAGE_CACHE.getIfPresent(element);
+        final JexlMessage messageWithoutBody;
+        if (cached != null && cached.facetVersion == facetVersion) {
+            messageWithoutBody = cached.jexlMessage;
+        } else {
+            messageWithoutBody = buildJexlMessageWithoutBody(element);
+            JEXL_MESSAGE_CACHE.put(element, new VersionedJexlMessage(facetVersion, messageWithoutBody));
+        }
+        return messageWithoutBody.withBody(element.getFirst("body").orElse(null));
+    }
+
+    private JexlMessage buildJexlMessageWithoutBody(RbelElement element) {
         return JexlMessage.builder()
             .request(element.getFacet(RbelHttpRequestFacet.class).isPresent())
             .response(element.getFacet(RbelHttpResponseFacet.class).isPresent())
@@ -228,8 +293,6 @@ public class RbelJexlExecutor {
             .url(element.getFacet(RbelHttpRequestFacet.class)
                 .map(RbelHttpRequestFacet::getPath).map(RbelElement::getRawStringContent)
                 .orElse(null))
-            .bodyAsString(bodyOptional.map(RbelElement::getRawStringContent).orElse(null))
-            .body(bodyOptional.orElse(null))
             .statusCode(element.getFacet(RbelHttpResponseFacet.class)
                 .map(RbelHttpResponseFacet::getResponseCode)
                 .map(RbelElement::getRawStringContent)
@@ -242,8 +305,10 @@ public class RbelJexlExecutor {
                 .map(RbelHttpHeaderFacet::entries)
                 .stream()
                 .flatMap(List::stream)
-                .collect(Collectors.groupingBy(Map.Entry::getKey,
-                    Collectors.mapping(e -> e.getValue().getRawStringContent(), Collectors.toList()))))
+                .collect(Collectors.collectingAndThen(
+                    Collectors.groupingBy(Map.Entry::getKey,
+                        Collectors.mapping(e -> e.getValue().getRawStringContent(), Collectors.toUnmodifiableList())),
+                    Collections::unmodifiableMap)))
             .build();
     }
 
@@ -283,7 +348,6 @@ public class RbelJexlExecutor {
             .findFirst();
     }
 
-    @Builder
     @Data
     public static class JexlMessage {
 
@@ -293,7 +357,50 @@ public class RbelJexlExecutor {
         public final boolean request;
         public final boolean response;
         public final Map<String, List<String>> headers;
-        public final String bodyAsString;
         public final RbelElement body;
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        @EqualsAndHashCode.Exclude
+        @ToString.Exclude
+        private String bodyAsString;
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        @EqualsAndHashCode.Exclude
+        @ToString.Exclude
+        private boolean bodyDecoded;
+
+        @Builder
+        private JexlMessage(String method, String url, String statusCode, boolean request, boolean response,
+            Map<String, List<String>> headers, RbelElement body) {
+            this.method = method;
+            this.url = url;
+            this.statusCode = statusCode;
+            this.request = request;
+            this.response = response;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        /**
+         * Decoded on first access, most expressions never read it
+         */
+        public String getBodyAsString() {
+            if (!bodyDecoded) {
+                bodyAsString = body == null ? null : body.getRawStringContent();
+                bodyDecoded = true;
+            }
+            return bodyAsString;
+        }
+
+        private JexlMessage withBody(RbelElement body) {
+            return new JexlMessage(method, url, statusCode, request, response, headers, body);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class VersionedJexlMessage {
+
+        private final long facetVersion;
+        private final JexlMessage jexlMessage;
     }
 }
@@ -41,6 +41,11 @@ public class RbelJsonConverter implements RbelConverterPlugin {
         return Optional.empty();
     }
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.containsAll('{', '}') || content.containsAll('[', ']');
+    }
+
     @Override
     public void consumeElement(RbelElement rbelElement, RbelConverter converter) {
         final Optional<JsonElement> jsonOptional = convertToJson(rbelElement.getRawStringContent());
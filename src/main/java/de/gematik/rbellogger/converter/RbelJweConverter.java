@@ -36,6 +36,12 @@ public class RbelJweConverter implements RbelConverterPlugin {
         BrainpoolCurves.init();
     }
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        // compact serialization: header.encryptedKey.iv.ciphertext.tag
+        return content.getDotCount() == 4;
+    }
+
     @Override
     public void consumeElement(final RbelElement rbel, final RbelConverter context) {
         final Optional<JsonWebEncryption> jweOptional = initializeJwe(rbel);
@@ -42,6 +42,12 @@ public class RbelJwtConverter implements RbelConverterPlugin {
         BrainpoolCurves.init();
     }
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        // compact serialization: header.payload.signature
+        return content.getDotCount() == 2;
+    }
+
     @Override
     public void consumeElement(RbelElement rbelElement, RbelConverter converter) {
         try {
@@ -38,6 +38,11 @@ import java.util.stream.Stream;
 @Slf4j
 public class RbelMtomConverter implements RbelConverterPlugin {
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.startsWithIgnoringLeadingWhitespace("--");
+    }
+
     @Override
     public void consumeElement(RbelElement rbelElement, RbelConverter converter) {
         if (!stringStartIsMtom(rbelElement)) {
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.converter;
+
+import de.gematik.rbellogger.data.RbelElement;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Functions of the {@code rbel} namespace in JEXL expressions, evaluated against the element the expression is
+ * executed on, e.g. {@code rbel:path('$.header.Host') == 'localhost'}.
+ */
+@RequiredArgsConstructor
+public class RbelPathJexlFunctions {
+
+    public static final String NAMESPACE = "rbel";
+
+    private final RbelElement element;
+
+    /**
+     * Raw string content of the element at the given RbelPath, or an empty string if there is none.
+     */
+    public String path(String rbelPath) {
+        return element.findElement(rbelPath)
+            .map(RbelElement::getRawStringContent)
+            .orElse("");
+    }
+
+    /**
+     * The element at the given RbelPath, or null if there is none.
+     */
+    public RbelElement element(String rbelPath) {
+        return element.findElement(rbelPath)
+            .orElse(null);
+    }
+}
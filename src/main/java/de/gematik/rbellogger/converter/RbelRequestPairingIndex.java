@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.converter;
+
+import de.gematik.rbellogger.data.RbelElement;
+import de.gematik.rbellogger.data.RbelHostname;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Open HTTP requests, keyed by connection (sender/receiver pair). Every connection holds its unanswered requests in
+ * arrival order, so pipelined requests are answered first-in-first-out. A response is looked up under the reversed
+ * connection key.
+ * <p>
+ * If no open request is known for the connection the last request on that connection is used, and if the connection is
+ * not known at all the last request overall. Messages without hostnames share the connection key {@code (null, null)}
+ * but do not belong to one connection, so no requests are kept open for it: a response without hostnames is paired
+ * with the last request without hostnames, and a request which never gets a response does not shift later pairs.
+ * <p>
+ * Responses which arrive already paired must be reported via {@link #markAnswered(RbelElement)}, otherwise their
+ * request would stay open and be handed to the next unpaired response.
+ * <p>
+ * Memory is bounded: only the most recently used connections are tracked and each connection keeps a limited number
+ * of open requests. Messages dropped from the history are forgotten via {@link #remove(RbelElement)}.
+ */
+@Slf4j
+class RbelRequestPairingIndex {
+
+    static final int MAX_CONNECTIONS = 1024;
+    static final int MAX_OPEN_REQUESTS_PER_CONNECTION = 64;
+
+    private final Map<Pair<RbelHostname, RbelHostname>, Connection> connections =
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Pair<RbelHostname, RbelHostname>, Connection> eldest) {
+                if (size() <= MAX_CONNECTIONS) {
+                    return false;
+                }
+                eldest.getValue().openRequests.forEach(connectionOfRequest::remove);
+                connectionOfRequest.remove(eldest.getValue().lastRequest);
+                return true;
+            }
+        };
+    private final Map<RbelElement, Connection> connectionOfRequest = new IdentityHashMap<>();
+    private RbelElement lastRequest;
+
+    synchronized void addRequest(RbelElement request, RbelHostname sender, RbelHostname receiver) {
+        final Connection connection = connections.computeIfAbsent(Pair.of(sender, receiver), Connection::new);
+        final RbelElement previousRequest = connection.lastRequest;
+        connection.lastRequest = request;
+        lastRequest = request;
+        connectionOfRequest.put(request, connection);
+        if ((sender != null || receiver != null) && !containsElement(connection.openRequests, request)) {
+            connection.openRequests.addLast(request);
+            if (connection.openRequests.size() > MAX_OPEN_REQUESTS_PER_CONNECTION) {
+                log.trace("Too many unanswered requests from {} to {}, dropping oldest", sender, receiver);
+                releaseIfUnreferenced(connection, connection.openRequests.removeFirst());
+            }
+        }
+        releaseIfUnreferenced(connection, previousRequest);
+    }
+
+    /**
+     * Finds (and removes from the open requests) the request a response from {@code sender} to {@code receiver}
+     * answers.
+     */
+    synchronized Optional<RbelElement> pollRequestFor(RbelHostname sender, RbelHostname receiver) {
+        final Connection connection = connections.get(Pair.of(receiver, sender));
+        if (connection == null) {
+            return Optional.ofNullable(lastRequest);
+        }
+        if (connection.openRequests.isEmpty()) {
+            return Optional.ofNullable(connection.lastRequest);
+        }
+        final RbelElement request = connection.openRequests.removeFirst();
+        releaseIfUnreferenced(connection, request);
+        return Optional.of(request);
+    }
+
+    /**
+     * Removes a request which was answered by an already paired response from the open requests of its connection.
+     */
+    synchronized void markAnswered(RbelElement request) {
+        final Connection connection = connectionOfRequest.get(request);
+        if (connection != null && connection.openRequests.removeIf(openRequest -> openRequest == request)) {
+            releaseIfUnreferenced(connection, request);
+        }
+    }
+
+    synchronized void remove(RbelElement message) {
+        if (lastRequest == message) {
+            lastRequest = null;
+        }
+        final Connection connection = connectionOfRequest.remove(message);
+        if (connection == null) {
+            return;
+        }
+        connection.openRequests.removeIf(request -> request == message);
+        if (connection.lastRequest == message) {
+            connection.lastRequest = null;
+        }
+        if (connection.lastRequest == null && connection.openRequests.isEmpty()) {
+            connections.remove(connection.key);
+        }
+    }
+
+    synchronized void clear() {
+        connections.clear();
+        connectionOfRequest.clear();
+        lastRequest = null;
+    }
+
+    private void releaseIfUnreferenced(Connection connection, RbelElement request) {
+        if (request != null && connection.lastRequest != request
+            && !containsElement(connection.openRequests, request)) {
+            connectionOfRequest.remove(request);
+        }
+    }
+
+    private static boolean containsElement(Deque<RbelElement> deque, RbelElement element) {
+        for (RbelElement candidate : deque) {
+            if (candidate == element) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @RequiredArgsConstructor
+    private static class Connection {
+
+        private final Pair<RbelHostname, RbelHostname> key;
+        private final Deque<RbelElement> openRequests = new ArrayDeque<>();
+        private RbelElement lastRequest;
+    }
+}
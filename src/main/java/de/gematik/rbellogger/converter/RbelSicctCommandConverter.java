@@ -16,19 +16,24 @@
 
 package de.gematik.rbellogger.converter;
 
+import de.gematik.rbellogger.data.RbelContent;
 import de.gematik.rbellogger.data.RbelElement;
 import de.gematik.rbellogger.data.facet.*;
 import de.gematik.rbellogger.data.sicct.RbelSicctCommand;
 import de.gematik.rbellogger.data.sicct.SicctMessageType;
 import de.gematik.rbellogger.util.RbelException;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.ArrayUtils;
 
 import java.util.Optional;
 
 @Slf4j
 public class RbelSicctCommandConverter implements RbelConverterPlugin {
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.hasParent();
+    }
+
     @Override
     public void consumeElement(final RbelElement element, final RbelConverter context) {
         if (element.getParentNode() == null) {
@@ -52,10 +57,11 @@ public class RbelSicctCommandConverter implements RbelConverterPlugin {
 
     private RbelFacet buildHeaderFacet(RbelElement element) {
         // compare SICCT-specification, chapter 5.1
-        final RbelElement cla = new RbelElement(ArrayUtils.subarray(element.getRawContent(), 0, 1), element);
-        final RbelElement ins = new RbelElement(ArrayUtils.subarray(element.getRawContent(), 1, 2), element);
-        final RbelElement p1 = new RbelElement(ArrayUtils.subarray(element.getRawContent(), 2, 3), element);
-        final RbelElement p2 = new RbelElement(ArrayUtils.subarray(element.getRawContent(), 3, 4), element);
+        final RbelContent content = element.getContent();
+        final RbelElement cla = RbelElement.fromContent(slice(content, 0, 1), element);
+        final RbelElement ins = RbelElement.fromContent(slice(content, 1, 2), element);
+        final RbelElement p1 = RbelElement.fromContent(slice(content, 2, 3), element);
+        final RbelElement p2 = RbelElement.fromContent(slice(content, 3, 4), element);
 
         cla.addFacet(new RbelBinaryFacet());
         ins.addFacet(new RbelBinaryFacet());
@@ -72,15 +78,17 @@ public class RbelSicctCommandConverter implements RbelConverterPlugin {
     }
 
     private RbelSicctCommandFacet buildBodyFacet(RbelElement element) {
-        byte[] header = ArrayUtils.subarray(element.getRawContent(), 0, 4);
-        byte[] body = ArrayUtils.subarray(element.getRawContent(), 4,
-            element.getRawContent().length);
+        final RbelContent content = element.getContent();
         return RbelSicctCommandFacet.builder()
-            .header(new RbelElement(header, element))
-            .body(new RbelElement(body, element))
+            .header(RbelElement.fromContent(slice(content, 0, 4), element))
+            .body(RbelElement.fromContent(slice(content, 4, content.size()), element))
             .build();
     }
 
+    private static RbelContent slice(RbelContent content, int from, int to) {
+        return content.subContent(Math.min(from, content.size()), Math.min(to, content.size()));
+    }
+
     private Optional<SicctMessageType> findMessageType(RbelElement element) {
         return element.getFacet(RbelSicctEnvelopeFacet.class)
             .or(() -> element.getParentNode().getFacet(RbelSicctEnvelopeFacet.class))
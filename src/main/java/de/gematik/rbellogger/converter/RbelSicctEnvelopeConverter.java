@@ -16,21 +16,25 @@
 
 package de.gematik.rbellogger.converter;
 
+import de.gematik.rbellogger.data.RbelContent;
 import de.gematik.rbellogger.data.RbelElement;
 import de.gematik.rbellogger.data.facet.*;
 import de.gematik.rbellogger.data.sicct.SicctMessageType;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.ArrayUtils;
-import org.bouncycastle.util.encoders.Hex;
 
 @Slf4j
 public class RbelSicctEnvelopeConverter implements RbelConverterPlugin {
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return !content.hasParent() && content.length() >= 11;
+    }
+
     @Override
     public void consumeElement(final RbelElement element, final RbelConverter context) {
         if (element.getParentNode() != null
             || element.hasFacet(RbelHttpMessageFacet.class)
-            || element.getRawContent().length < 11) {
+            || element.getSize() < 11) {
             return;
         }
         try {
@@ -43,11 +47,9 @@ public class RbelSicctEnvelopeConverter implements RbelConverterPlugin {
                     if (msgType == SicctMessageType.C_COMMAND) {
                         element.findMessage().addFacet(new RbelRequestFacet(requestInfoString(envelopeFacet)));
                     } else {
-                        element.findMessage().addFacet(new RbelResponseFacet(Hex.toHexString(
-                            ArrayUtils.subarray(element.getRawContent(),
-                                element.getRawContent().length - 2,
-                                element.getRawContent().length)
-                        )));
+                        final RbelContent content = element.getContent();
+                        element.findMessage().addFacet(new RbelResponseFacet(
+                            content.subContent(content.size() - 2, content.size()).toHexString()));
                     }
                 });
         } catch (RuntimeException e) {
@@ -65,14 +67,16 @@ public class RbelSicctEnvelopeConverter implements RbelConverterPlugin {
 
     private RbelSicctEnvelopeFacet buildEnvelopeFacet(RbelElement element) {
         // compare SICCT-specification, chapter 6.1.4.2
-        final RbelElement commandElement = new RbelElement(ArrayUtils.subarray(element.getRawContent(), 10, element.getRawContent().length), element);
+        final RbelContent content = element.getContent();
+        final RbelElement commandElement = RbelElement.fromContent(content.subContent(10, content.size()), element);
         commandElement.addFacet(new RbelBinaryFacet());
         return RbelSicctEnvelopeFacet.builder()
-            .messageType(RbelElement.wrap(new byte[]{element.getRawContent()[0]}, element, SicctMessageType.of(element.getRawContent()[0])))
-            .srcOrDesAddress(new RbelElement(ArrayUtils.subarray(element.getRawContent(), 1, 3), element))
-            .sequenceNumber(new RbelElement(ArrayUtils.subarray(element.getRawContent(), 3, 5), element))
-            .abRfu(new RbelElement(ArrayUtils.subarray(element.getRawContent(), 5, 6), element))
-            .length(new RbelElement(ArrayUtils.subarray(element.getRawContent(), 6, 10), element))
+            .messageType(RbelElement.fromContent(content.subContent(0, 1), element)
+                .addFacet(new RbelValueFacet<>(SicctMessageType.of(content.get(0)))))
+            .srcOrDesAddress(RbelElement.fromContent(content.subContent(1, 3), element))
+            .sequenceNumber(RbelElement.fromContent(content.subContent(3, 5), element))
+            .abRfu(RbelElement.fromContent(content.subContent(5, 6), element))
+            .length(RbelElement.fromContent(content.subContent(6, 10), element))
             .command(commandElement)
             .build();
     }
@@ -71,6 +71,12 @@ public class RbelUriConverter implements RbelConverterPlugin {
         }
     }
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return !content.containsWhitespace()
+            && (content.startsWith("/") || content.contains('?') || content.contains(':'));
+    }
+
     @Override
     public void consumeElement(final RbelElement rbel, final RbelConverter context) {
         if (!canConvertElement(rbel)) {
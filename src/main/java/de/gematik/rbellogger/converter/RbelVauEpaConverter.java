@@ -16,6 +16,7 @@
 
 package de.gematik.rbellogger.converter;
 
+import de.gematik.rbellogger.data.RbelContent;
 import de.gematik.rbellogger.data.RbelElement;
 import de.gematik.rbellogger.data.facet.*;
 import de.gematik.rbellogger.exceptions.RbelConversionException;
@@ -38,6 +39,16 @@ import static de.gematik.rbellogger.util.CryptoUtils.decrypt;
 @Slf4j
 public class RbelVauEpaConverter implements RbelConverterPlugin {
 
+    private static final int VAU_KEY_ID_LENGTH = 32;
+
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        if (content.length() < VAU_KEY_ID_LENGTH + CryptoUtils.GCM_IV_LENGTH_IN_BYTES + CryptoUtils.GCM_TAG_LENGTH_IN_BYTES) {
+            return false;
+        }
+        return !isChildOfJsonElement(content.getElement()) || content.isBase64Alphabet();
+    }
+
     @Override
     public void consumeElement(RbelElement element, RbelConverter context) {
         log.trace("Trying to decipher '{}'...", element.getRawStringContent());
@@ -50,32 +61,37 @@ public class RbelVauEpaConverter implements RbelConverterPlugin {
             });
     }
 
-    private Optional<byte[]> tryToExtractRawVauContent(RbelElement element) {
-        if (element.getParentNode() != null
-            && element.getParentNode().hasFacet(RbelJsonFacet.class)) {
+    private Optional<RbelContent> tryToExtractRawVauContent(RbelElement element) {
+        if (isChildOfJsonElement(element)) {
             try {
-                return Optional.ofNullable(Base64.getDecoder().decode(element.getRawContent()));
+                return Optional.of(RbelContent.of(Base64.getDecoder().decode(element.getRawContent())));
             } catch (IllegalArgumentException e) {
                 return Optional.empty();
             }
         } else {
-            return Optional.ofNullable(element.getRawContent());
+            return Optional.ofNullable(element.getContent());
         }
     }
 
-    private Optional<RbelVauEpaFacet> decipherVauMessage(byte[] content, RbelConverter converter, RbelElement parentNode) {
-        final Optional<Pair<byte[], byte[]>> splitOptional = splitVauMessage(content);
+    private static boolean isChildOfJsonElement(RbelElement element) {
+        return element.getParentNode() != null
+            && element.getParentNode().hasFacet(RbelJsonFacet.class);
+    }
+
+    private Optional<RbelVauEpaFacet> decipherVauMessage(RbelContent content, RbelConverter converter, RbelElement parentNode) {
+        final Optional<Pair<byte[], RbelContent>> splitOptional = splitVauMessage(content);
         if (splitOptional.isEmpty()) {
             return Optional.empty();
         }
-        final Pair<byte[], byte[]> splitVauMessage = splitOptional.get();
+        final Pair<byte[], RbelContent> splitVauMessage = splitOptional.get();
         final List<RbelKey> potentialVauKeys = converter.getRbelKeyManager().getAllKeys()
             .filter(key -> key.getKeyName().startsWith(Hex.toHexString(splitVauMessage.getKey())))
             .filter(key -> key.getKey() instanceof SecretKey)
             .collect(Collectors.toList());
 
+        final byte[] encryptedMessage = potentialVauKeys.isEmpty() ? null : splitVauMessage.getValue().toByteArray();
         for (RbelKey rbelKey : potentialVauKeys) {
-            Optional<byte[]> decryptedBytes = decrypt(splitVauMessage.getValue(), rbelKey.getKey(),
+            Optional<byte[]> decryptedBytes = decrypt(encryptedMessage, rbelKey.getKey(),
                 CryptoUtils.GCM_IV_LENGTH_IN_BYTES, CryptoUtils.GCM_TAG_LENGTH_IN_BYTES);
             if (decryptedBytes.isPresent()) {
                 try {
@@ -92,7 +108,7 @@ public class RbelVauEpaConverter implements RbelConverterPlugin {
     }
 
     private Optional<RbelVauEpaFacet> buildVauMessageFromCleartext(RbelConverter converter,
-                                                                   Pair<byte[], byte[]> splitVauMessage,
+                                                                   Pair<byte[], RbelContent> splitVauMessage,
                                                                    byte[] decryptedBytes, RbelElement parentNode, RbelKey rbelKey) {
         final String cleartextString = new String(decryptedBytes);
         if (cleartextString.startsWith("VAUClientSigFin")
@@ -101,7 +117,7 @@ public class RbelVauEpaConverter implements RbelConverterPlugin {
             decryptedPayload.addFacet(new RbelBinaryFacet());
             return Optional.of(RbelVauEpaFacet.builder()
                 .message(converter.filterInputThroughPreConversionMappers(decryptedPayload))
-                .encryptedMessage(RbelElement.wrap(parentNode, splitVauMessage.getValue()))
+                .encryptedMessage(RbelElement.wrap(parentNode, splitVauMessage.getValue().toByteArray()))
                 .keyIdUsed(RbelElement.wrap(parentNode, rbelKey.getKeyName().split("_")[0]))
                 .keyUsed(Optional.of(rbelKey))
                 .build());
@@ -110,37 +126,31 @@ public class RbelVauEpaConverter implements RbelConverterPlugin {
         }
     }
 
-    private RbelVauEpaFacet fromRaw(Pair<byte[], byte[]> payloadPair, RbelConverter converter,
+    private RbelVauEpaFacet fromRaw(Pair<byte[], RbelContent> payloadPair, RbelConverter converter,
                                     byte[] decryptedBytes, RbelElement parentNode, RbelKey rbelKey) {
-        byte[] raw = new byte[decryptedBytes.length - 8 - 1];
-        System.arraycopy(decryptedBytes, 8 + 1, raw, 0, raw.length);
-
-        byte[] sequenceNumberBytes = new byte[4];
-        System.arraycopy(decryptedBytes, 5, sequenceNumberBytes, 0, 4);
-        int sequenceNumber = java.nio.ByteBuffer.wrap(sequenceNumberBytes).getInt();
+        final RbelContent decryptedContent = RbelContent.of(decryptedBytes);
+        final int headerStart = 1 + 8 + 4;
 
-        byte[] numberOfBytes_inBytes = new byte[4];
-        System.arraycopy(raw, 0, numberOfBytes_inBytes, 0, 4);
-        int numberOfBytes = java.nio.ByteBuffer.wrap(numberOfBytes_inBytes).getInt();
+        int sequenceNumber = java.nio.ByteBuffer.wrap(decryptedBytes, 5, 4).getInt();
+        int numberOfBytes = java.nio.ByteBuffer.wrap(decryptedBytes, 1 + 8, 4).getInt();
 
-        byte[] headerField_inBytes = new byte[numberOfBytes];
-        System.arraycopy(raw, 4, headerField_inBytes, 0, numberOfBytes);
-        String headerField = new String(headerField_inBytes, StandardCharsets.US_ASCII);
+        final RbelContent headerContent = decryptedContent.subContent(headerStart, headerStart + numberOfBytes);
+        String headerField = headerContent.toString(StandardCharsets.US_ASCII);
 
-        RbelElement headerElement = new RbelElement(headerField_inBytes, parentNode);
+        RbelElement headerElement = RbelElement.fromContent(headerContent, parentNode);
         RbelHttpHeaderFacet header = new RbelHttpHeaderFacet();
         headerElement.addFacet(header);
         Arrays.stream(headerField.split("\r\n"))
             .map(field -> field.split(":", 2))
             .forEach(field -> header.put(field[0].trim(), converter.convertElement(field[1], headerElement)));
 
-        byte[] body = new byte[raw.length - 4 - numberOfBytes];
-        System.arraycopy(raw, 4 + numberOfBytes, body, 0, body.length);
+        final RbelContent body = decryptedContent.subContent(headerStart + numberOfBytes, decryptedContent.size());
 
         return RbelVauEpaFacet.builder()
-            .message(converter.filterInputThroughPreConversionMappers(new RbelElement(body, parentNode)))
+            .message(converter.filterInputThroughPreConversionMappers(RbelElement.fromContent(body, parentNode)))
             .additionalHeaders(headerElement)
-            .encryptedMessage(RbelElement.wrap(payloadPair.getValue(), parentNode, null))
+            .encryptedMessage(RbelElement.fromContent(payloadPair.getValue(), parentNode)
+                .addFacet(new RbelValueFacet<>(null)))
             .keyIdUsed(RbelElement.wrap(parentNode, Hex.toHexString(payloadPair.getKey())))
             .pVersionNumber(RbelElement.wrap(parentNode, (int) decryptedBytes[0]))
             .sequenceNumber(RbelElement.wrap(parentNode, (long) sequenceNumber))
@@ -148,15 +158,11 @@ public class RbelVauEpaConverter implements RbelConverterPlugin {
             .build();
     }
 
-    private Optional<Pair<byte[], byte[]>> splitVauMessage(byte[] vauMessage) {
-        try {
-            byte[] keyID = new byte[32];
-            System.arraycopy(vauMessage, 0, keyID, 0, 32);
-            byte[] enc = new byte[vauMessage.length - 32];
-            System.arraycopy(vauMessage, 32, enc, 0, vauMessage.length - 32);
-            return Optional.of(Pair.of(keyID, enc));
-        } catch (ArrayIndexOutOfBoundsException e) {
+    private Optional<Pair<byte[], RbelContent>> splitVauMessage(RbelContent vauMessage) {
+        if (vauMessage.size() < VAU_KEY_ID_LENGTH) {
             return Optional.empty();
         }
+        return Optional.of(Pair.of(vauMessage.subContent(0, VAU_KEY_ID_LENGTH).toByteArray(),
+            vauMessage.subContent(VAU_KEY_ID_LENGTH, vauMessage.size())));
     }
 }
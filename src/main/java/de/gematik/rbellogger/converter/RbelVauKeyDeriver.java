@@ -50,6 +50,11 @@ public class RbelVauKeyDeriver implements RbelConverterPlugin {
     private static final String AES_256_GCM_KEY_SERVER_TO_CLIENT = "AES-256-GCM-Key-Server-to-Client";
     private static final String AES_256_GCM_KEY_CLIENT_TO_SERVER = "AES-256-GCM-Key-Client-to-Server";
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.containsAll('{', '}');
+    }
+
     @Override
     public void consumeElement(RbelElement rbelElement, RbelConverter converter) {
         final Optional<PublicKey> otherSidePublicKey = Optional.ofNullable(rbelElement)
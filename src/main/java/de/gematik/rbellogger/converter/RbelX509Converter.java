@@ -33,10 +33,18 @@ import static de.gematik.rbellogger.util.CryptoLoader.getCertificateFromPem;
 public class RbelX509Converter implements RbelConverterPlugin {
     private static final ZoneId utcZone = ZoneId.of("UTC");
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.startsWithDerSequence()
+            || content.contains("-----BEGIN")
+            || content.isBase64Alphabet();
+    }
+
     @Override
     public void consumeElement(final RbelElement element, final RbelConverter context) {
-        tryConversion(element, () -> element.getRawContent());
-        tryConversion(element, () -> Base64.getDecoder().decode(element.getRawContent()));
+        final byte[] rawContent = element.getRawContent();
+        tryConversion(element, () -> rawContent);
+        tryConversion(element, () -> Base64.getDecoder().decode(rawContent));
     }
 
     private void tryConversion(RbelElement element, Supplier<byte[]> binaryContentExtractor) {
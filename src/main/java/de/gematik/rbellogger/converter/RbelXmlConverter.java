@@ -42,6 +42,11 @@ public class RbelXmlConverter implements RbelConverterPlugin {
     private static final String XML_TEXT_KEY = "text";
     private RbelHtmlConverter htmlConverter = new RbelHtmlConverter();
 
+    @Override
+    public boolean isApplicable(RbelContentSniffer content) {
+        return content.containsAll('<', '>');
+    }
+
     @Override
     public void consumeElement(final RbelElement rbel, final RbelConverter context) {
         final String content = rbel.getRawStringContent();
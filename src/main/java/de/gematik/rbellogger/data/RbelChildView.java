@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import de.gematik.rbellogger.data.facet.RbelFacet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cached children of an element, as collected from the child maps of all its facets. Valid as long as no facet was
+ * added or replaced and none of the collected maps was modified (e.g. converters filling a map after attaching its
+ * facet). Facets computing a fresh map on every call never modify it, so they never invalidate the view.
+ * <p>
+ * The collected maps report their modifications to the tree of the owning element as well, see
+ * {@link RbelElement#findTreeIndex()}.
+ */
+final class RbelChildView {
+
+    private final long facetVersion;
+    private final RbelMultiMap[] facetChildMaps;
+    private final long[] modificationCounts;
+    private final List<RbelElement> childNodes;
+    private final RbelMultiMap childNodesWithKey;
+
+    private RbelChildView(RbelElement owner, long facetVersion, List<RbelFacet> facets) {
+        this.facetVersion = facetVersion;
+        this.facetChildMaps = new RbelMultiMap[facets.size()];
+        this.modificationCounts = new long[facets.size()];
+        final List<RbelElement> nodes = new ArrayList<>();
+        final RbelMultiMap nodesWithKey = new RbelMultiMap();
+        for (int i = 0; i < facets.size(); i++) {
+            final RbelMultiMap childMap = facets.get(i).getChildElements();
+            childMap.setOwner(owner);
+            facetChildMaps[i] = childMap;
+            modificationCounts[i] = childMap.getModificationCount();
+            for (Map.Entry<String, RbelElement> entry : childMap.getValues()) {
+                if (entry.getValue() != null) {
+                    nodes.add(entry.getValue());
+                    nodesWithKey.put(entry);
+                }
+            }
+        }
+        this.childNodes = Collections.unmodifiableList(nodes);
+        this.childNodesWithKey = nodesWithKey.makeReadOnly();
+    }
+
+    static RbelChildView of(RbelElement owner, long facetVersion, List<RbelFacet> facets) {
+        return new RbelChildView(owner, facetVersion, facets);
+    }
+
+    boolean isValidFor(long currentFacetVersion) {
+        if (facetVersion != currentFacetVersion) {
+            return false;
+        }
+        for (int i = 0; i < facetChildMaps.length; i++) {
+            if (facetChildMaps[i].getModificationCount() != modificationCounts[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    List<RbelElement> getChildNodes() {
+        return childNodes;
+    }
+
+    RbelMultiMap getChildNodesWithKey() {
+        return childNodesWithKey;
+    }
+}
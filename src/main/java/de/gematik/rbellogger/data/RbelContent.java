@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import lombok.NonNull;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Immutable view on a range of a byte buffer. Child elements which are a contiguous part of their parent (e.g. the
+ * body of an HTTP message) share the buffer of the parent instead of holding a copy of it.
+ * <p>
+ * {@link #toByteArray()} returns the underlying buffer itself if the view covers all of it. Partial views are only
+ * materialized on demand, i.e. every call copies the range ({@link RbelElement#getRawContent()} keeps that copy).
+ * Prefer the accessors of this class (or {@link RbelElement#getRawStringContent()}, which decodes directly from the
+ * buffer) where possible.
+ */
+public final class RbelContent {
+
+    private final byte[] buffer;
+    private final int offset;
+    private final int length;
+
+    private RbelContent(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static RbelContent of(@NonNull byte[] bytes) {
+        return new RbelContent(bytes, 0, bytes.length);
+    }
+
+    public static RbelContent of(@NonNull byte[] bytes, int from, int to) {
+        return of(bytes).subContent(from, to);
+    }
+
+    /**
+     * View on the range [from, to) of this content. Both indices are relative to this view.
+     */
+    public RbelContent subContent(int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " + length);
+        }
+        if (from == 0 && to == length) {
+            return this;
+        }
+        return new RbelContent(buffer, offset + from, to - from);
+    }
+
+    public int size() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public byte get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+        return buffer[offset + index];
+    }
+
+    /**
+     * First position (relative to this view) at or after {@code fromIndex} where {@code pattern} starts, or -1.
+     */
+    public int indexOf(byte[] pattern, int fromIndex) {
+        for (int i = Math.max(0, fromIndex); i + pattern.length <= length; i++) {
+            if (regionMatches(i, pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean startsWith(byte[] prefix) {
+        return prefix.length <= length && regionMatches(0, prefix);
+    }
+
+    public byte[] toByteArray() {
+        if (offset == 0 && length == buffer.length) {
+            return buffer;
+        }
+        return Arrays.copyOfRange(buffer, offset, offset + length);
+    }
+
+    public String toString(Charset charset) {
+        return new String(buffer, offset, length, charset);
+    }
+
+    public String toHexString() {
+        return Hex.toHexString(buffer, offset, length);
+    }
+
+    @Override
+    public String toString() {
+        return "RbelContent[" + length + " bytes]";
+    }
+
+    private boolean regionMatches(int position, byte[] pattern) {
+        for (int j = 0; j < pattern.length; j++) {
+            if (buffer[offset + position + j] != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
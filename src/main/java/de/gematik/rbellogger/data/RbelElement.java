@@ -16,16 +16,18 @@
 
 package de.gematik.rbellogger.data;
 
+import de.gematik.rbellogger.RbelOptions;
 import de.gematik.rbellogger.converter.RbelConverter;
 import de.gematik.rbellogger.data.facet.*;
 import de.gematik.rbellogger.data.util.RbelElementTreePrinter;
 import de.gematik.rbellogger.util.RbelException;
-import de.gematik.rbellogger.util.RbelPathExecutor;
+import de.gematik.rbellogger.util.RbelPath;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -33,6 +35,7 @@ import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.Nullable;
 
@@ -40,10 +43,34 @@ import javax.annotation.Nullable;
 @Slf4j
 public class RbelElement {
 
-    private final String uuid;
-    private final byte[] rawContent;
+    private static final AtomicReferenceFieldUpdater<RbelElement, String> UUID_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(RbelElement.class, String.class, "uuid");
+    private static final AtomicLongFieldUpdater<RbelElement> TREE_VERSION_UPDATER =
+        AtomicLongFieldUpdater.newUpdater(RbelElement.class, "treeVersion");
+
+    private volatile String uuid;
+    private final RbelContent content;
     private final transient RbelElement parentNode;
     private final List<RbelFacet> facets = new ArrayList<>();
+    @Getter(AccessLevel.NONE)
+    private volatile long facetTypeMask = 0L;
+    @Getter(AccessLevel.NONE)
+    private volatile long facetReplacementCount = 0L;
+    @Getter(AccessLevel.NONE)
+    private volatile String cachedKeyInParent;
+    @Getter(AccessLevel.NONE)
+    private volatile long cachedKeyInParentVersion;
+    @Getter(AccessLevel.NONE)
+    private volatile long treeVersion = 0L;
+    @Getter(AccessLevel.NONE)
+    private volatile RbelTreeIndex treeIndex;
+    @Getter(AccessLevel.NONE)
+    private volatile RbelChildView childView;
+    /**
+     * Copy of a partial content view, made on the first call of {@link #getRawContent()}
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile byte[] rawContentCopy;
     @Setter
     @Getter(AccessLevel.PRIVATE)
     private Optional<Charset> charset;
@@ -59,26 +86,43 @@ public class RbelElement {
     }
 
     @Builder(toBuilder = true)
-    public RbelElement(@Nullable String uuid, byte[] rawContent, RbelElement parentNode, Optional<Charset> charset) {
+    public RbelElement(@Nullable @Builder.ObtainVia(method = "getUuid") String uuid,
+                       @Builder.ObtainVia(method = "getRawContent") byte[] rawContent,
+                       RbelElement parentNode, Optional<Charset> charset) {
+        this(uuid, rawContent == null ? null : RbelContent.of(rawContent), parentNode, charset);
+    }
+
+    private RbelElement(@Nullable String uuid, RbelContent content, RbelElement parentNode, Optional<Charset> charset) {
         if (StringUtils.isNotEmpty(uuid)) {
             this.uuid = uuid;
-        } else {
-            this.uuid = UUID.randomUUID().toString();
         }
-        this.rawContent = rawContent;
+        this.content = content;
         this.parentNode = parentNode;
         if (charset == null) {
             this.charset = Optional.empty();
         } else {
             this.charset = charset;
         }
-        if (rawContent != null) {
-            this.size = rawContent.length;
+        if (content != null) {
+            this.size = content.size();
         } else {
             this.size = 0L;
         }
     }
 
+    /**
+     * Creates an element whose content is a view on (a part of) an existing buffer, typically a range of the
+     * content of {@code parentNode}. No bytes are copied.
+     */
+    public static RbelElement fromContent(@NonNull RbelContent content, RbelElement parentNode) {
+        return new RbelElement(null, content, parentNode, Optional.empty());
+    }
+
+    public static RbelElement fromContent(@NonNull RbelContent content, RbelElement parentNode,
+                                          Optional<Charset> charset) {
+        return new RbelElement(null, content, parentNode, charset);
+    }
+
     public static RbelElement wrap(byte[] rawValue, @NonNull RbelElement parentNode, Object value) {
         return new RbelElement(rawValue, parentNode)
             .addFacet(new RbelValueFacet<>(value));
@@ -90,126 +134,255 @@ public class RbelElement {
     }
 
     public <T> Optional<T> getFacet(@NonNull Class<T> clazz) {
-        return Collections.unmodifiableList(facets).stream()
-            .filter(facet -> clazz.isAssignableFrom(facet.getClass()))
-            .map(clazz::cast)
-            .findFirst();
+        return Optional.ofNullable(findFacet(clazz));
     }
 
     public <T extends RbelFacet> boolean hasFacet(Class<T> clazz) {
-        return getFacet(clazz).isPresent();
+        return findFacet(clazz) != null;
+    }
+
+    private <T> T findFacet(Class<T> clazz) {
+        if ((facetTypeMask & RbelFacetTypeIndex.queryMask(clazz)) == 0) {
+            return null;
+        }
+        for (int i = 0; i < facets.size(); i++) {
+            final RbelFacet facet = facets.get(i);
+            if (clazz.isInstance(facet)) {
+                return clazz.cast(facet);
+            }
+        }
+        return null;
     }
 
     public RbelElement addFacet(RbelFacet facet) {
+        final long facetTypeBit = RbelFacetTypeIndex.bitOf(facet.getClass());
         synchronized (facets) {
             facets.add(facet);
+            facetTypeMask |= facetTypeBit;
         }
+        markTreeModified();
         return this;
     }
 
+    /**
+     * Children of all facets, in facet order. The returned list is a cached, read-only view.
+     */
     public List<RbelElement> getChildNodes() {
-        return Collections.unmodifiableList(facets).stream()
-            .map(RbelFacet::getChildElements)
-            .map(RbelMultiMap::getValues)
-            .flatMap(Collection::stream)
-            .map(Map.Entry::getValue)
-            .filter(Objects::nonNull)
-            .collect(Collectors.toList());
+        return findChildView().getChildNodes();
     }
 
+    /**
+     * Children of all facets with their keys, in facet order. The returned map is a cached, read-only view.
+     */
     public RbelMultiMap getChildNodesWithKey() {
-        return Collections.unmodifiableList(facets).stream()
-            .map(RbelFacet::getChildElements)
-            .map(RbelMultiMap::getValues)
-            .flatMap(Collection::stream)
-            .filter(el -> el.getValue() != null)
-            .collect(RbelMultiMap.COLLECTOR);
+        return findChildView().getChildNodesWithKey();
     }
 
-    public void triggerPostConversionListener(final RbelConverter context) {
-        for (RbelElement element : getChildNodes()) {
-            element.triggerPostConversionListener(context);
+    private RbelChildView findChildView() {
+        final RbelChildView cachedView = childView;
+        final List<RbelFacet> facetSnapshot;
+        final long facetVersion;
+        synchronized (facets) {
+            facetVersion = facets.size() + facetReplacementCount;
+            if (cachedView != null && cachedView.isValidFor(facetVersion)) {
+                return cachedView;
+            }
+            facetSnapshot = new ArrayList<>(facets);
         }
-        context.triggerPostConversionListenerFor(this);
+        final RbelChildView view = RbelChildView.of(this, facetVersion, facetSnapshot);
+        childView = view;
+        return view;
     }
 
-    public List<RbelElement> traverseAndReturnNestedMembers() {
-        return getChildNodes().stream()
-            .map(RbelElement::traverseAndReturnNestedMembersInternal)
-            .flatMap(List::stream)
-            .collect(Collectors.toList());
+    public void triggerPostConversionListener(final RbelConverter context) {
+        traverse(new RbelElementVisitor() {
+            @Override
+            public Action enter(RbelElement element, int depth) {
+                return Action.CONTINUE;
+            }
+
+            @Override
+            public void leave(RbelElement element, int depth) {
+                context.triggerPostConversionListenerFor(element);
+            }
+        });
     }
 
-    // Yes, default-visibility (is called recursively)
-    List<RbelElement> traverseAndReturnNestedMembersInternal() {
-        log.trace("Traversing into {}: facets are {}", findNodePath(), getFacets().stream()
-            .map(Object::getClass).map(Class::getSimpleName).collect(Collectors.toList()));
-        if (hasFacet(RbelRootFacet.class)) {
-            return List.of(this);
-        } else {
-            return getChildNodes().stream()
-                .map(RbelElement::traverseAndReturnNestedMembersInternal)
-                .flatMap(List::stream)
-                .collect(Collectors.toList());
+    /**
+     * All descendants carrying a {@link RbelRootFacet}, without descending into them.
+     */
+    public List<RbelElement> traverseAndReturnNestedMembers() {
+        final List<RbelElement> result = new ArrayList<>();
+        traverse((element, depth) -> {
+            if (depth == 0) {
+                return RbelElementVisitor.Action.CONTINUE;
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("Traversing into {}: facets are {}", element.findNodePath(), element.getFacets().stream()
+                    .map(Object::getClass).map(Class::getSimpleName).collect(Collectors.toList()));
+            }
+            if (element.hasFacet(RbelRootFacet.class)) {
+                result.add(element);
+                return RbelElementVisitor.Action.SKIP_SUBTREE;
+            }
+            return RbelElementVisitor.Action.CONTINUE;
+        });
+        return result;
+    }
+
+    /**
+     * Depth-first walk over this element and all its descendants without recursion. The children of an element are
+     * read when it is entered, so facets added while leaving it are not visited.
+     */
+    public void traverse(RbelElementVisitor visitor) {
+        final RbelElementVisitor.Action rootAction = visitor.enter(this, 0);
+        if (rootAction == RbelElementVisitor.Action.TERMINATE) {
+            return;
+        }
+        if (rootAction == RbelElementVisitor.Action.SKIP_SUBTREE) {
+            visitor.leave(this, 0);
+            return;
+        }
+        final Deque<Pair<RbelElement, Iterator<RbelElement>>> stack = new ArrayDeque<>();
+        stack.push(Pair.of(this, getChildNodes().iterator()));
+        while (!stack.isEmpty()) {
+            final Pair<RbelElement, Iterator<RbelElement>> current = stack.peek();
+            if (!current.getValue().hasNext()) {
+                stack.pop();
+                visitor.leave(current.getKey(), stack.size());
+                continue;
+            }
+            final RbelElement child = current.getValue().next();
+            final int depth = stack.size();
+            final RbelElementVisitor.Action action = visitor.enter(child, depth);
+            if (action == RbelElementVisitor.Action.TERMINATE) {
+                return;
+            } else if (action == RbelElementVisitor.Action.SKIP_SUBTREE) {
+                visitor.leave(child, depth);
+            } else {
+                stack.push(Pair.of(child, child.getChildNodes().iterator()));
+            }
         }
     }
 
+    /**
+     * Depth-first pre-order iterator over this element and all its descendants, see {@link RbelElementTreeIterator}.
+     */
+    public RbelElementTreeIterator treeIterator() {
+        return new RbelElementTreeIterator(this);
+    }
+
     public boolean isStructuralHelperElement() {
         return false;
     }
 
     public String findNodePath() {
-        LinkedList<Optional<String>> keyList = new LinkedList<>();
-        final AtomicReference<RbelElement> ptr = new AtomicReference(this);
-        while (!(ptr.get().getParentNode() == null)) {
-            keyList.addFirst(
-                ptr.get().getParentNode().getChildNodesWithKey().stream()
-                    .filter(entry -> entry.getValue() == ptr.get())
-                    .map(Map.Entry::getKey).findFirst());
-            ptr.set(ptr.get().getParentNode());
+        final LinkedList<String> keyList = new LinkedList<>();
+        for (RbelElement ptr = this; ptr.getParentNode() != null; ptr = ptr.getParentNode()) {
+            final String key = ptr.lookupKeyInParent();
+            if (key != null) {
+                keyList.addFirst(key);
+            }
         }
-        return keyList.stream()
-            .filter(Optional::isPresent)
-            .map(Optional::get)
-            .collect(Collectors.joining("."));
+        return String.join(".", keyList);
     }
 
+    /**
+     * Answered by the cached child view, which indexes its keys once it holds more than a few children.
+     */
     public Optional<RbelElement> getFirst(String key) {
-        return getChildNodesWithKey().stream()
-            .filter(entry -> entry.getKey().equals(key))
-            .map(Map.Entry::getValue)
-            .findFirst();
+        return Optional.ofNullable(getChildNodesWithKey().get(key));
     }
 
+    /**
+     * Answered by the cached child view, which indexes its keys once it holds more than a few children. The returned
+     * list is read-only.
+     */
     public List<RbelElement> getAll(String key) {
-        return getChildNodesWithKey().stream()
-            .filter(entry -> entry.getKey().equals(key))
-            .map(Map.Entry::getValue)
-            .collect(Collectors.toList());
+        return getChildNodesWithKey().getAll(key);
     }
 
     public Optional<String> findKeyInParentElement() {
-        return Optional.of(this)
-            .map(RbelElement::getParentNode)
-            .filter(Objects::nonNull)
-            .stream()
-            .flatMap(parent -> parent.getChildNodesWithKey().stream())
-            .filter(e -> e.getValue() == this)
-            .map(Map.Entry::getKey)
-            .findFirst();
+        if (parentNode == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(lookupKeyInParent());
+    }
+
+    /**
+     * Key under which this element is attached to its parent. The keys of all children are recorded with a single
+     * pass over the children of the parent, so walking up a path costs O(depth). Since facets and their child maps
+     * only ever append, a recorded key stays valid until the parent replaces a facet.
+     *
+     * @return the key or null, if this element is not (yet) attached to its parent
+     */
+    private String lookupKeyInParent() {
+        final long parentVersion = parentNode.facetReplacementCount;
+        if (cachedKeyInParentVersion != parentVersion || cachedKeyInParent == null) {
+            parentNode.recordKeysOfChildren(parentVersion);
+        }
+        final String key = cachedKeyInParent;
+        return cachedKeyInParentVersion == parentVersion ? key : null;
+    }
+
+    private void recordKeysOfChildren(long version) {
+        for (Map.Entry<String, RbelElement> entry : getChildNodesWithKey().getValues()) {
+            final RbelElement child = entry.getValue();
+            if (child.parentNode == this && entry.getKey() != null
+                && (child.cachedKeyInParent == null || child.cachedKeyInParentVersion != version)) {
+                child.cachedKeyInParent = entry.getKey();
+                child.cachedKeyInParentVersion = version;
+            }
+        }
     }
 
     public List<RbelElement> findRbelPathMembers(String rbelPath) {
-        return new RbelPathExecutor(this, rbelPath)
-            .execute();
+        return RbelPath.compile(rbelPath).execute(this);
+    }
+
+    /**
+     * Lazy variant of {@link #findRbelPathMembers(String)}: the path is only resolved as far as the stream is consumed.
+     */
+    public Stream<RbelElement> streamRbelPathMembers(String rbelPath) {
+        return RbelPath.compile(rbelPath).stream(this);
+    }
+
+    /**
+     * The id of this element, generated on first access by {@link RbelOptions#ELEMENT_ID_STRATEGY} unless it was
+     * given explicitly.
+     */
+    public String getUuid() {
+        final String existingUuid = uuid;
+        if (existingUuid != null) {
+            return existingUuid;
+        }
+        UUID_UPDATER.compareAndSet(this, null, RbelOptions.ELEMENT_ID_STRATEGY.generateId(this));
+        return uuid;
+    }
+
+    /**
+     * The content as array. For elements viewing a part of their parent's buffer it is copied once and then reused,
+     * so the returned array must not be modified.
+     */
+    @Nullable
+    public byte[] getRawContent() {
+        if (content == null) {
+            return null;
+        }
+        byte[] result = rawContentCopy;
+        if (result == null) {
+            result = content.toByteArray();
+            rawContentCopy = result;
+        }
+        return result;
     }
 
     @Nullable
     public String getRawStringContent() {
-        if (rawContent == null) {
+        if (content == null) {
             return null;
         } else {
-            return new String(rawContent, getElementCharset());
+            return content.toString(getElementCharset());
         }
     }
 
@@ -228,7 +401,7 @@ public class RbelElement {
     @Override
     public String toString() {
         return new ToStringBuilder(this)
-            .append("uuid", uuid)
+            .append("uuid", getUuid())
             .append("facets", facets)
             .append("path", findNodePath())
             .toString();
@@ -259,6 +432,10 @@ public class RbelElement {
         if (parentNode == null) {
             return Optional.empty();
         }
+        final String key = lookupKeyInParent();
+        if (key != null) {
+            return Optional.of(key);
+        }
         for (Map.Entry<String, RbelElement> ptr : parentNode.getChildNodesWithKey().getValues()) {
             if (ptr.getValue() == this) {
                 return Optional.ofNullable(ptr.getKey());
@@ -269,15 +446,111 @@ public class RbelElement {
 
     public void addOrReplaceFacet(RbelFacet facet) {
         synchronized (facets) {
-            if (hasFacet(facet.getClass())) {
-                facets.remove(getFacet(facet.getClass()).get());
+            final RbelFacet replacedFacet = findFacet(facet.getClass());
+            if (replacedFacet != null) {
+                facets.remove(replacedFacet);
             }
             facets.add(facet);
+            facetReplacementCount++;
+            long mask = 0L;
+            for (RbelFacet remainingFacet : facets) {
+                mask |= RbelFacetTypeIndex.bitOf(remainingFacet.getClass());
+            }
+            facetTypeMask = mask;
+        }
+        markTreeModified();
+    }
+
+    /**
+     * Index over the tree this element belongs to (kept on the root element). Built on first use and rebuilt after a
+     * facet was added or replaced anywhere in the tree, or a child map of a facet was modified.
+     *
+     * @return empty if the index is deactivated ({@link RbelOptions#ACTIVATE_RBEL_PATH_INDEX}) or the tree can not be
+     * indexed
+     */
+    public Optional<RbelTreeIndex> findTreeIndex() {
+        if (!RbelOptions.ACTIVATE_RBEL_PATH_INDEX) {
+            return Optional.empty();
+        }
+        final RbelElement root = findRootElement();
+        final long version = root.treeVersion;
+        RbelTreeIndex index = root.treeIndex;
+        if (index == null || index.getTreeVersion() != version) {
+            index = RbelTreeIndex.build(root, version);
+            root.treeIndex = index;
+        }
+        return Optional.of(index)
+            .filter(RbelTreeIndex::isComplete);
+    }
+
+    /**
+     * All descendants of this element carrying a facet of the given type, in the order of the recursive descent of
+     * RbelPath.
+     */
+    public List<RbelElement> findDescendantsWithFacet(Class<? extends RbelFacet> facetType) {
+        return findTreeIndex()
+            .flatMap(index -> index.findDescendantsWithFacet(this, facetType))
+            .orElseGet(() -> {
+                final List<RbelElement> result = new ArrayList<>();
+                collectDescendantsWithFacet(facetType, result);
+                return result;
+            });
+    }
+
+    /**
+     * Scan without the tree index: the children of an element are collected when it is expanded, its children are
+     * expanded afterwards in turn. The pending children are kept on an explicit stack instead of recursing.
+     */
+    private void collectDescendantsWithFacet(Class<? extends RbelFacet> facetType, List<RbelElement> result) {
+        final Deque<Iterator<RbelElement>> pendingChildren = new ArrayDeque<>();
+        pendingChildren.push(collectChildrenWithFacet(this, facetType, result));
+        while (!pendingChildren.isEmpty()) {
+            final Iterator<RbelElement> children = pendingChildren.peek();
+            if (children.hasNext()) {
+                pendingChildren.push(collectChildrenWithFacet(children.next(), facetType, result));
+            } else {
+                pendingChildren.pop();
+            }
+        }
+    }
+
+    private static Iterator<RbelElement> collectChildrenWithFacet(RbelElement element,
+        Class<? extends RbelFacet> facetType, List<RbelElement> result) {
+        final List<RbelElement> childNodes = element.getChildNodes();
+        for (RbelElement child : childNodes) {
+            if (child.hasFacet(facetType)) {
+                result.add(child);
+            }
+        }
+        return childNodes.iterator();
+    }
+
+    private RbelElement findRootElement() {
+        RbelElement root = this;
+        while (root.parentNode != null && root.parentNode != root) {
+            root = root.parentNode;
+        }
+        return root;
+    }
+
+    void markTreeModified() {
+        TREE_VERSION_UPDATER.incrementAndGet(findRootElement());
+    }
+
+    /**
+     * Increases whenever a facet is added to or replaced on this element, e.g. to validate values derived from the
+     * facets.
+     */
+    public long getFacetVersion() {
+        synchronized (facets) {
+            return facets.size() + facetReplacementCount;
         }
     }
 
     public Optional<RbelElement> findElement(String rbelPath) {
-        final List<RbelElement> resultList = findRbelPathMembers(rbelPath);
+        final List<RbelElement> resultList = streamRbelPathMembers(rbelPath)
+            .limit(2)
+            .collect(Collectors.toList());
         if (resultList.isEmpty()) {
             return Optional.empty();
         }
@@ -285,7 +558,8 @@ public class RbelElement {
             return Optional.of(resultList.get(0));
         }
         throw new RbelPathNotUniqueException(
-            "RbelPath '" + rbelPath + "' is not unique! Found " + resultList.size() + " elements, expected only one!");
+            "RbelPath '" + rbelPath + "' is not unique! Found " + findRbelPathMembers(rbelPath).size()
+                + " elements, expected only one!");
     }
 
     public String printTreeStructureWithoutColors() {
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the ids returned by {@link RbelElement#getUuid()}. Ids are generated lazily, i.e. only for elements whose
+ * id is actually requested. The strategy in use is configured via
+ * {@link de.gematik.rbellogger.RbelOptions#ELEMENT_ID_STRATEGY}.
+ */
+@FunctionalInterface
+public interface RbelElementIdStrategy {
+
+    /**
+     * A random UUID for every element.
+     */
+    RbelElementIdStrategy RANDOM_UUIDS = element -> UUID.randomUUID().toString();
+
+    /**
+     * Random UUIDs for messages (elements without parent), which are used to deduplicate .tgr files and as HTML
+     * anchors. All nested elements get a sequential id, unique within this JVM, which avoids the contended
+     * {@link java.security.SecureRandom} behind {@link UUID#randomUUID()}.
+     */
+    RbelElementIdStrategy UUIDS_FOR_MESSAGES_ONLY = new RbelElementIdStrategy() {
+        private final String prefix = UUID.randomUUID().toString().substring(0, 8) + "-";
+        private final AtomicLong counter = new AtomicLong();
+
+        @Override
+        public String generateId(RbelElement element) {
+            if (element.getParentNode() == null) {
+                return UUID.randomUUID().toString();
+            }
+            return prefix + Long.toHexString(counter.incrementAndGet());
+        }
+    };
+
+    String generateId(RbelElement element);
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Depth-first pre-order iterator over an element and all its descendants. Keeps one iterator over the (cached) child
+ * list per level, so neither deep trees nor wide ones lead to recursion or collected lists.
+ */
+public final class RbelElementTreeIterator implements Iterator<RbelElement> {
+
+    private final Deque<Iterator<RbelElement>> levels = new ArrayDeque<>();
+    private RbelElement pendingRoot;
+    private RbelElement lastReturned;
+    private int lastReturnedDepth = -1;
+    private boolean skipLastReturned;
+
+    RbelElementTreeIterator(RbelElement root) {
+        this.pendingRoot = root;
+    }
+
+    /**
+     * Does not descend into the element last returned, so {@link #skipSubtree()} may still be called afterwards.
+     */
+    @Override
+    public boolean hasNext() {
+        if (pendingRoot != null) {
+            return true;
+        }
+        if (lastReturned != null && !skipLastReturned && !lastReturned.getChildNodes().isEmpty()) {
+            return true;
+        }
+        return hasNextSibling();
+    }
+
+    @Override
+    public RbelElement next() {
+        if (pendingRoot != null) {
+            lastReturned = pendingRoot;
+            pendingRoot = null;
+        } else {
+            descendIntoLastReturned();
+            if (!hasNextSibling()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = levels.peek().next();
+        }
+        lastReturnedDepth = levels.size();
+        skipLastReturned = false;
+        return lastReturned;
+    }
+
+    /**
+     * Depth of the element last returned by {@link #next()}, the root has depth 0.
+     */
+    public int getDepth() {
+        return lastReturnedDepth;
+    }
+
+    /**
+     * Do not descend into the children of the element last returned by {@link #next()}. May be called before or after
+     * {@link #hasNext()}.
+     */
+    public void skipSubtree() {
+        if (lastReturned == null) {
+            throw new IllegalStateException("next() has not been called yet");
+        }
+        skipLastReturned = true;
+    }
+
+    private void descendIntoLastReturned() {
+        if (lastReturned != null && !skipLastReturned) {
+            levels.push(lastReturned.getChildNodes().iterator());
+        }
+    }
+
+    private boolean hasNextSibling() {
+        while (!levels.isEmpty() && !levels.peek().hasNext()) {
+            levels.pop();
+        }
+        return !levels.isEmpty();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+/**
+ * Callback for {@link RbelElement#traverse(RbelElementVisitor)}. Elements are entered in depth-first pre-order and left
+ * after all their descendants, the depth is relative to the element the traversal started at.
+ */
+@FunctionalInterface
+public interface RbelElementVisitor {
+
+    enum Action {
+        CONTINUE,
+        /**
+         * Do not descend into the children of the entered element (it is still left)
+         */
+        SKIP_SUBTREE,
+        /**
+         * Stop the traversal immediately, no further elements are entered or left
+         */
+        TERMINATE
+    }
+
+    Action enter(RbelElement element, int depth);
+
+    default void leave(RbelElement element, int depth) {
+    }
+}
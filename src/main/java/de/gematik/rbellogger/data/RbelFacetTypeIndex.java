@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Assigns every concrete facet type a bit (via {@link ClassValue}, so the lookup is allocation-free) and computes for
+ * every queried type the bits of all facet types assignable to it. An element keeps the OR of the bits of its facets,
+ * so {@code (elementMask & queryMask(type)) == 0} proves in O(1) that an element carries no facet of the queried type,
+ * which is by far the most common outcome of {@link RbelElement#getFacet(Class)}.
+ * <p>
+ * The first 63 facet types get a bit of their own, all further types share the last bit. Sharing only leads to false
+ * positives, which are resolved by scanning the facets of the element.
+ */
+final class RbelFacetTypeIndex {
+
+    private static final int SHARED_BIT = 63;
+    private static final Map<Class<?>, Long> REGISTERED_TYPE_BITS = new ConcurrentHashMap<>();
+    private static final List<Class<?>> REGISTERED_TYPES = new CopyOnWriteArrayList<>();
+
+    private static final ClassValue<Long> FACET_TYPE_BITS = new ClassValue<>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            return REGISTERED_TYPE_BITS.computeIfAbsent(type, RbelFacetTypeIndex::register);
+        }
+    };
+    private static final ClassValue<AtomicReference<QueryMask>> QUERY_MASKS = new ClassValue<>() {
+        @Override
+        protected AtomicReference<QueryMask> computeValue(Class<?> type) {
+            return new AtomicReference<>(new QueryMask(0L, 0));
+        }
+    };
+
+    private RbelFacetTypeIndex() {
+    }
+
+    static long bitOf(Class<?> facetType) {
+        return FACET_TYPE_BITS.get(facetType);
+    }
+
+    static long queryMask(Class<?> queriedType) {
+        final AtomicReference<QueryMask> reference = QUERY_MASKS.get(queriedType);
+        final QueryMask cached = reference.get();
+        final int registeredTypes = REGISTERED_TYPES.size();
+        if (cached.registeredTypes == registeredTypes) {
+            return cached.mask;
+        }
+        long mask = 0L;
+        int i = 0;
+        for (Class<?> registeredType : REGISTERED_TYPES) {
+            if (i++ >= registeredTypes) {
+                break;
+            }
+            if (queriedType.isAssignableFrom(registeredType)) {
+                mask |= bitOf(registeredType);
+            }
+        }
+        reference.set(new QueryMask(mask, registeredTypes));
+        return mask;
+    }
+
+    private static Long register(Class<?> facetType) {
+        synchronized (REGISTERED_TYPES) {
+            final int slot = REGISTERED_TYPES.size();
+            REGISTERED_TYPES.add(facetType);
+            return 1L << Math.min(slot, SHARED_BIT);
+        }
+    }
+
+    private static class QueryMask {
+
+        private final long mask;
+        private final int registeredTypes;
+
+        private QueryMask(long mask, int registeredTypes) {
+            this.mask = mask;
+            this.registeredTypes = registeredTypes;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Message history backed by a ring buffer. Appending, dropping the oldest message and querying the accumulated size
+ * of all messages are O(1), random access by index stays O(1) as well. All methods synchronize on the history itself,
+ * so compound operations can be guarded with {@code synchronized (history)}.
+ * <p>
+ * Listeners registered via {@link #addRemovalListener(Consumer)} are notified for every message that leaves the
+ * history (eviction, removal or clear), e.g. to keep secondary indexes in sync.
+ */
+public class RbelMessageHistory extends AbstractList<RbelElement> implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final List<Consumer<RbelElement>> removalListeners = new CopyOnWriteArrayList<>();
+    private RbelElement[] elements = new RbelElement[INITIAL_CAPACITY];
+    private int head = 0;
+    private int count = 0;
+    private long totalSize = 0;
+
+    public RbelMessageHistory addRemovalListener(Consumer<RbelElement> removalListener) {
+        removalListeners.add(removalListener);
+        return this;
+    }
+
+    @Override
+    public synchronized RbelElement get(int index) {
+        checkIndex(index, count);
+        return elements[physicalIndex(index)];
+    }
+
+    @Override
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Sum of {@link RbelElement#getSize()} over all messages currently in the history.
+     */
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    @Override
+    public synchronized boolean add(RbelElement element) {
+        if (count == elements.length) {
+            grow();
+        }
+        elements[physicalIndex(count)] = element;
+        count++;
+        totalSize += element.getSize();
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public synchronized void add(int index, RbelElement element) {
+        checkIndex(index, count + 1);
+        add(element);
+        for (int i = count - 1; i > index; i--) {
+            elements[physicalIndex(i)] = elements[physicalIndex(i - 1)];
+        }
+        elements[physicalIndex(index)] = element;
+    }
+
+    @Override
+    public synchronized RbelElement set(int index, RbelElement element) {
+        checkIndex(index, count);
+        final RbelElement previous = elements[physicalIndex(index)];
+        elements[physicalIndex(index)] = element;
+        totalSize += element.getSize() - previous.getSize();
+        notifyRemovalListeners(previous);
+        return previous;
+    }
+
+    @Override
+    public synchronized RbelElement remove(int index) {
+        checkIndex(index, count);
+        if (index == 0) {
+            return removeFirst();
+        }
+        final RbelElement removed = elements[physicalIndex(index)];
+        for (int i = index; i < count - 1; i++) {
+            elements[physicalIndex(i)] = elements[physicalIndex(i + 1)];
+        }
+        elements[physicalIndex(count - 1)] = null;
+        count--;
+        totalSize -= removed.getSize();
+        modCount++;
+        notifyRemovalListeners(removed);
+        return removed;
+    }
+
+    public synchronized RbelElement removeFirst() {
+        checkIndex(0, count);
+        final RbelElement removed = elements[head];
+        elements[head] = null;
+        head = (head + 1) % elements.length;
+        count--;
+        totalSize -= removed.getSize();
+        modCount++;
+        notifyRemovalListeners(removed);
+        return removed;
+    }
+
+    /**
+     * Drops the oldest messages until the accumulated size no longer exceeds {@code maximumTotalSize}.
+     *
+     * @return the number of dropped messages
+     */
+    public synchronized int evictOldestWhileLargerThan(long maximumTotalSize) {
+        int evicted = 0;
+        while (totalSize > maximumTotalSize && count > 0) {
+            removeFirst();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    @Override
+    public synchronized void clear() {
+        final List<RbelElement> removed = removalListeners.isEmpty() ? List.of() : snapshot();
+        elements = new RbelElement[INITIAL_CAPACITY];
+        head = 0;
+        count = 0;
+        totalSize = 0;
+        modCount++;
+        removed.forEach(this::notifyRemovalListeners);
+    }
+
+    /**
+     * Consistent copy of the current history, safe to iterate while new messages are added.
+     */
+    public synchronized List<RbelElement> snapshot() {
+        final List<RbelElement> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(elements[physicalIndex(i)]);
+        }
+        return result;
+    }
+
+    private int physicalIndex(int index) {
+        final int physicalIndex = head + index;
+        return physicalIndex < elements.length ? physicalIndex : physicalIndex - elements.length;
+    }
+
+    private void grow() {
+        final RbelElement[] grown = new RbelElement[elements.length * 2];
+        for (int i = 0; i < count; i++) {
+            grown[i] = elements[physicalIndex(i)];
+        }
+        elements = grown;
+        head = 0;
+    }
+
+    private void notifyRemovalListeners(RbelElement removed) {
+        for (Consumer<RbelElement> removalListener : removalListeners) {
+            removalListener.accept(removed);
+        }
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + bound);
+        }
+    }
+}
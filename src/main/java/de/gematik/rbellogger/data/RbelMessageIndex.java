@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import de.gematik.rbellogger.data.facet.RbelMessageTimingFacet;
+import de.gematik.rbellogger.data.facet.RbelTcpIpMessageFacet;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Secondary indexes over the message history: hostnames of sender and receiver (domain and bundled server name), HTTP
+ * method, basic path, response code, sequence number and transmission time. Every index maps its key to the messages
+ * ordered by sequence number, so {@link #find(RbelMessageQuery)} scans only the smallest matching posting and checks
+ * the remaining criteria on the message itself.
+ * <p>
+ * The keys are read when a message is added, i.e. after the post conversion listeners ran. Changes to the message
+ * made later are not reflected in the index (results are still verified against the query, so they can only be
+ * missed, never be wrong).
+ */
+public class RbelMessageIndex {
+
+    private final NavigableMap<Long, RbelElement> bySequenceNumber = new TreeMap<>();
+    private final Map<String, NavigableMap<Long, RbelElement>> bySender = new HashMap<>();
+    private final Map<String, NavigableMap<Long, RbelElement>> byReceiver = new HashMap<>();
+    private final Map<String, NavigableMap<Long, RbelElement>> byMethod = new HashMap<>();
+    private final Map<String, NavigableMap<Long, RbelElement>> byPath = new HashMap<>();
+    private final Map<Integer, NavigableMap<Long, RbelElement>> byResponseCode = new HashMap<>();
+    private final NavigableMap<Instant, NavigableMap<Long, RbelElement>> byTransmissionTime = new TreeMap<>();
+    private final Map<RbelElement, IndexedMessage> indexedMessages = new IdentityHashMap<>();
+
+    /**
+     * Messages without {@link RbelTcpIpMessageFacet} have no sequence number and are not indexed.
+     */
+    public synchronized void add(RbelElement message) {
+        final Optional<RbelTcpIpMessageFacet> tcpIpFacet = message.getFacet(RbelTcpIpMessageFacet.class);
+        if (tcpIpFacet.isEmpty()) {
+            return;
+        }
+        remove(message);
+        final IndexedMessage indexedMessage = new IndexedMessage(tcpIpFacet.get().getSequenceNumber(),
+            RbelMessageQuery.hostnamesOf(tcpIpFacet.get().getSender()),
+            RbelMessageQuery.hostnamesOf(tcpIpFacet.get().getReceiver()),
+            RbelMessageQuery.methodOf(message),
+            RbelMessageQuery.basicPathOf(message),
+            RbelMessageQuery.responseCodeOf(message),
+            message.getFacet(RbelMessageTimingFacet.class)
+                .map(timing -> timing.getTransmissionTime().toInstant())
+                .orElse(null));
+        final long sequenceNumber = indexedMessage.sequenceNumber;
+        indexedMessages.put(message, indexedMessage);
+        bySequenceNumber.put(sequenceNumber, message);
+        indexedMessage.senders.forEach(sender -> addPosting(bySender, sender, sequenceNumber, message));
+        indexedMessage.receivers.forEach(receiver -> addPosting(byReceiver, receiver, sequenceNumber, message));
+        addPosting(byMethod, indexedMessage.method, sequenceNumber, message);
+        addPosting(byPath, indexedMessage.path, sequenceNumber, message);
+        addPosting(byResponseCode, indexedMessage.responseCode, sequenceNumber, message);
+        addPosting(byTransmissionTime, indexedMessage.transmissionTime, sequenceNumber, message);
+    }
+
+    public synchronized void remove(RbelElement message) {
+        final IndexedMessage indexedMessage = indexedMessages.remove(message);
+        if (indexedMessage == null) {
+            return;
+        }
+        final long sequenceNumber = indexedMessage.sequenceNumber;
+        bySequenceNumber.remove(sequenceNumber, message);
+        indexedMessage.senders.forEach(sender -> removePosting(bySender, sender, sequenceNumber, message));
+        indexedMessage.receivers.forEach(receiver -> removePosting(byReceiver, receiver, sequenceNumber, message));
+        removePosting(byMethod, indexedMessage.method, sequenceNumber, message);
+        removePosting(byPath, indexedMessage.path, sequenceNumber, message);
+        removePosting(byResponseCode, indexedMessage.responseCode, sequenceNumber, message);
+        removePosting(byTransmissionTime, indexedMessage.transmissionTime, sequenceNumber, message);
+    }
+
+    public synchronized void clear() {
+        bySequenceNumber.clear();
+        bySender.clear();
+        byReceiver.clear();
+        byMethod.clear();
+        byPath.clear();
+        byResponseCode.clear();
+        byTransmissionTime.clear();
+        indexedMessages.clear();
+    }
+
+    public synchronized int size() {
+        return indexedMessages.size();
+    }
+
+    /**
+     * Indexed messages matching the query, ordered by sequence number (descending for
+     * {@link RbelMessageQuery#isNewestFirst()}) and cut at the limit of the query.
+     */
+    public synchronized List<RbelElement> find(RbelMessageQuery query) {
+        final long minimumSequenceNumber = Optional.ofNullable(query.getMinimumSequenceNumber()).orElse(Long.MIN_VALUE);
+        final long maximumSequenceNumber = Optional.ofNullable(query.getMaximumSequenceNumber()).orElse(Long.MAX_VALUE);
+        if (minimumSequenceNumber > maximumSequenceNumber) {
+            return List.of();
+        }
+        NavigableMap<Long, RbelElement> candidates = bySequenceNumber;
+        final List<NavigableMap<Long, RbelElement>> postings = new ArrayList<>();
+        if (query.getHost() != null) {
+            postings.add(union(List.of(
+                bySender.getOrDefault(query.getHost(), Collections.emptyNavigableMap()),
+                byReceiver.getOrDefault(query.getHost(), Collections.emptyNavigableMap()))));
+        }
+        addPostingOfKey(postings, bySender, query.getSender());
+        addPostingOfKey(postings, byReceiver, query.getReceiver());
+        addPostingOfKey(postings, byMethod, query.getMethod());
+        addPostingOfKey(postings, byPath, query.getPath());
+        addPostingOfKey(postings, byResponseCode, query.getResponseCode());
+        for (NavigableMap<Long, RbelElement> posting : postings) {
+            if (posting.size() < candidates.size()) {
+                candidates = posting;
+            }
+        }
+        if (query.getTransmittedFrom() != null || query.getTransmittedUntil() != null) {
+            final NavigableMap<Instant, NavigableMap<Long, RbelElement>> timeRange = byTransmissionTime.subMap(
+                query.getTransmittedFrom() == null ? Instant.MIN : query.getTransmittedFrom().toInstant(), true,
+                query.getTransmittedUntil() == null ? Instant.MAX : query.getTransmittedUntil().toInstant(), true);
+            if (timeRange.values().stream().mapToInt(Map::size).sum() < candidates.size()) {
+                candidates = union(timeRange.values());
+            }
+        }
+        final NavigableMap<Long, RbelElement> range = candidates.subMap(
+            minimumSequenceNumber, true, maximumSequenceNumber, true);
+        return (query.isNewestFirst() ? range.descendingMap() : range).values().stream()
+            .filter(query::matches)
+            .limit(query.getLimit())
+            .collect(Collectors.toList());
+    }
+
+    private static <K> void addPostingOfKey(List<NavigableMap<Long, RbelElement>> postings,
+        Map<K, NavigableMap<Long, RbelElement>> index, K key) {
+        if (key != null) {
+            postings.add(index.getOrDefault(key, Collections.emptyNavigableMap()));
+        }
+    }
+
+    private static NavigableMap<Long, RbelElement> union(Collection<NavigableMap<Long, RbelElement>> postings) {
+        final NavigableMap<Long, RbelElement> result = new TreeMap<>();
+        postings.forEach(result::putAll);
+        return result;
+    }
+
+    private static <K> void addPosting(Map<K, NavigableMap<Long, RbelElement>> index, K key, long sequenceNumber,
+        RbelElement message) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new TreeMap<>()).put(sequenceNumber, message);
+        }
+    }
+
+    private static <K> void removePosting(Map<K, NavigableMap<Long, RbelElement>> index, K key, long sequenceNumber,
+        RbelElement message) {
+        if (key == null) {
+            return;
+        }
+        final NavigableMap<Long, RbelElement> posting = index.get(key);
+        if (posting != null && posting.remove(sequenceNumber, message) && posting.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class IndexedMessage {
+
+        private final long sequenceNumber;
+        private final Set<String> senders;
+        private final Set<String> receivers;
+        private final String method;
+        private final String path;
+        private final Integer responseCode;
+        private final Instant transmissionTime;
+    }
+}
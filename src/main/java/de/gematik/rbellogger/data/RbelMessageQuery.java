@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import de.gematik.rbellogger.data.facet.RbelHostnameFacet;
+import de.gematik.rbellogger.data.facet.RbelHttpRequestFacet;
+import de.gematik.rbellogger.data.facet.RbelHttpResponseFacet;
+import de.gematik.rbellogger.data.facet.RbelMessageTimingFacet;
+import de.gematik.rbellogger.data.facet.RbelTcpIpMessageFacet;
+import de.gematik.rbellogger.data.facet.RbelUriFacet;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * Criteria on the metadata of messages, all of which have to match (unset criteria match everything). Hostnames are
+ * compared with the domain as well as the bundled server name of sender and receiver, paths with the path of the
+ * request URI without query parameters. Ranges are inclusive.
+ * <p>
+ * Executed via {@link RbelMessageIndex#find(RbelMessageQuery)} or by scanning the message history with
+ * {@link #matches(RbelElement)}.
+ */
+@Getter
+@Builder
+@ToString
+public class RbelMessageQuery {
+
+    /**
+     * Sender or receiver
+     */
+    private final String host;
+    private final String sender;
+    private final String receiver;
+    /**
+     * Only requests (true) or only responses (false)
+     */
+    private final Boolean request;
+    private final String method;
+    private final String path;
+    private final Integer responseCode;
+    private final Long minimumSequenceNumber;
+    private final Long maximumSequenceNumber;
+    private final ZonedDateTime transmittedFrom;
+    private final ZonedDateTime transmittedUntil;
+    /**
+     * Return the most recent messages first
+     */
+    private final boolean newestFirst;
+    @Builder.Default
+    private final int limit = Integer.MAX_VALUE;
+
+    public boolean matches(RbelElement message) {
+        final Optional<RbelTcpIpMessageFacet> tcpIpFacet = message.getFacet(RbelTcpIpMessageFacet.class);
+        if (host != null && !(tcpIpFacet.map(facet -> hostnamesOf(facet.getSender()).contains(host)).orElse(false)
+            || tcpIpFacet.map(facet -> hostnamesOf(facet.getReceiver()).contains(host)).orElse(false))) {
+            return false;
+        }
+        if (sender != null && !tcpIpFacet.map(facet -> hostnamesOf(facet.getSender()).contains(sender)).orElse(false)) {
+            return false;
+        }
+        if (receiver != null
+            && !tcpIpFacet.map(facet -> hostnamesOf(facet.getReceiver()).contains(receiver)).orElse(false)) {
+            return false;
+        }
+        if (request != null && request != message.hasFacet(RbelHttpRequestFacet.class)) {
+            return false;
+        }
+        if (method != null && !method.equals(methodOf(message))) {
+            return false;
+        }
+        if (path != null && !path.equals(basicPathOf(message))) {
+            return false;
+        }
+        if (responseCode != null && !responseCode.equals(responseCodeOf(message))) {
+            return false;
+        }
+        if (minimumSequenceNumber != null || maximumSequenceNumber != null) {
+            final Optional<Long> sequenceNumber = tcpIpFacet.map(RbelTcpIpMessageFacet::getSequenceNumber);
+            if (sequenceNumber.isEmpty()
+                || (minimumSequenceNumber != null && sequenceNumber.get() < minimumSequenceNumber)
+                || (maximumSequenceNumber != null && sequenceNumber.get() > maximumSequenceNumber)) {
+                return false;
+            }
+        }
+        if (transmittedFrom != null || transmittedUntil != null) {
+            final Optional<ZonedDateTime> transmissionTime = message.getFacet(RbelMessageTimingFacet.class)
+                .map(RbelMessageTimingFacet::getTransmissionTime);
+            return transmissionTime.isPresent()
+                && (transmittedFrom == null || !transmissionTime.get().isBefore(transmittedFrom))
+                && (transmittedUntil == null || !transmissionTime.get().isAfter(transmittedUntil));
+        }
+        return true;
+    }
+
+    static Set<String> hostnamesOf(RbelElement hostnameElement) {
+        final Set<String> result = new HashSet<>();
+        if (hostnameElement == null) {
+            return result;
+        }
+        hostnameElement.getFacet(RbelHostnameFacet.class).ifPresent(facet -> {
+            facet.getDomain().seekValue(String.class).ifPresent(result::add);
+            facet.getBundledServerName()
+                .flatMap(name -> name.seekValue(String.class))
+                .ifPresent(result::add);
+        });
+        return result;
+    }
+
+    static String methodOf(RbelElement message) {
+        return message.getFacet(RbelHttpRequestFacet.class)
+            .map(RbelHttpRequestFacet::getMethod)
+            .map(RbelElement::getRawStringContent)
+            .orElse(null);
+    }
+
+    static String basicPathOf(RbelElement message) {
+        return message.getFacet(RbelHttpRequestFacet.class)
+            .map(RbelHttpRequestFacet::getPath)
+            .map(pathElement -> pathElement.getFacet(RbelUriFacet.class)
+                .map(RbelUriFacet::getBasicPathString)
+                .orElseGet(pathElement::getRawStringContent))
+            .orElse(null);
+    }
+
+    static Integer responseCodeOf(RbelElement message) {
+        return message.getFacet(RbelHttpResponseFacet.class)
+            .map(RbelHttpResponseFacet::getResponseCode)
+            .map(RbelElement::getRawStringContent)
+            .filter(NumberUtils::isDigits)
+            .map(Integer::valueOf)
+            .orElse(null);
+    }
+}
@@ -16,7 +16,12 @@
 
 package de.gematik.rbellogger.data;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.apache.commons.lang3.tuple.Pair;
 
 import javax.naming.OperationNotSupportedException;
@@ -25,9 +30,15 @@ import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * Ordered multimap: keeps insertion order and duplicate keys. Once a map grows beyond a few entries, key lookups are
+ * answered from an auxiliary index (key to positions), which is built on first use.
+ */
 @Data
 public class RbelMultiMap implements Map<String, RbelElement> {
 
+    private static final int INDEX_THRESHOLD = 8;
+
     public static final Collector<Entry<String, RbelElement>, RbelMultiMap, RbelMultiMap> COLLECTOR =
         Collector.of(RbelMultiMap::new, RbelMultiMap::put, (m1, m2) -> {
             m1.putAll(m2);
@@ -35,6 +46,33 @@ public class RbelMultiMap implements Map<String, RbelElement> {
         });
 
     private final List<Map.Entry<String, RbelElement>> values = new ArrayList();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile Map<String, List<Integer>> positionsByKey;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private long modificationCount = 0L;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean readOnly = false;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile RbelElement owner;
+
+    /**
+     * Read-only view of the entries in insertion order.
+     */
+    public List<Map.Entry<String, RbelElement>> getValues() {
+        return Collections.unmodifiableList(values);
+    }
 
     @Override
     public int size() {
@@ -48,6 +86,10 @@ public class RbelMultiMap implements Map<String, RbelElement> {
 
     @Override
     public boolean containsKey(Object key) {
+        final Map<String, List<Integer>> index = findIndex();
+        if (index != null) {
+            return index.containsKey(key);
+        }
         return values.stream()
             .anyMatch(entry -> entry.getKey().equals(key));
     }
@@ -60,6 +102,11 @@ public class RbelMultiMap implements Map<String, RbelElement> {
 
     @Override
     public RbelElement get(Object key) {
+        final Map<String, List<Integer>> index = findIndex();
+        if (index != null) {
+            final List<Integer> positions = index.get(key);
+            return positions == null ? null : values.get(positions.get(0)).getValue();
+        }
         return values.stream()
             .filter(entry -> entry.getKey().equals(key))
             .map(Entry::getValue)
@@ -68,24 +115,45 @@ public class RbelMultiMap implements Map<String, RbelElement> {
 
     @Override
     public RbelElement put(String key, RbelElement value) {
-        values.add(Pair.of(key, value));
-        return null;
+        return put(Pair.of(key, value));
     }
 
     public RbelElement put(Map.Entry<String, RbelElement> value) {
+        beforeModification();
         values.add(value);
+        final Map<String, List<Integer>> index = positionsByKey;
+        if (index != null) {
+            index.computeIfAbsent(value.getKey(), key -> new ArrayList<>(1))
+                .add(values.size() - 1);
+        }
+        afterModification();
         return null;
     }
 
+    /**
+     * Removes all entries with the given key.
+     *
+     * @return the value of the first removed entry
+     */
     @Override
     public RbelElement remove(Object key) {
         return removeAll(key.toString()).stream()
             .findFirst().orElse(null);
     }
 
+    /**
+     * Removes all entries with the given key.
+     *
+     * @return the values of the removed entries
+     */
     public List<RbelElement> removeAll(String key) {
         final List<RbelElement> elements = this.getAll(key);
-        values.removeAll(elements);
+        if (!elements.isEmpty()) {
+            beforeModification();
+            values.removeIf(entry -> Objects.equals(entry.getKey(), key));
+            positionsByKey = null;
+            afterModification();
+        }
         return elements;
     }
 
@@ -93,17 +161,24 @@ public class RbelMultiMap implements Map<String, RbelElement> {
     public void putAll(Map m) {
         for (Object entryRaw : m.entrySet()) {
             Map.Entry entry = (Map.Entry) entryRaw;
-            values.add(Pair.of((String) entry.getKey(), (RbelElement) entry.getValue()));
+            put((String) entry.getKey(), (RbelElement) entry.getValue());
         }
     }
 
     @Override
     public void clear() {
+        beforeModification();
         values.clear();
+        positionsByKey = null;
+        afterModification();
     }
 
     @Override
     public Set<String> keySet() {
+        final Map<String, List<Integer>> index = findIndex();
+        if (index != null) {
+            return Collections.unmodifiableSet(new HashSet<>(index.keySet()));
+        }
         return values.stream()
             .map(Entry::getKey)
             .collect(Collectors.toUnmodifiableSet());
@@ -141,6 +216,15 @@ public class RbelMultiMap implements Map<String, RbelElement> {
     }
 
     public List<RbelElement> getAll(String key) {
+        final Map<String, List<Integer>> index = findIndex();
+        if (index != null) {
+            final List<Integer> positions = index.getOrDefault(key, List.of());
+            final List<RbelElement> result = new ArrayList<>(positions.size());
+            for (Integer position : positions) {
+                result.add(values.get(position).getValue());
+            }
+            return Collections.unmodifiableList(result);
+        }
         return values.stream()
             .filter(entry -> entry.getKey().equals(key))
             .map(Entry::getValue)
@@ -148,6 +232,56 @@ public class RbelMultiMap implements Map<String, RbelElement> {
     }
 
     public Iterator<Entry<String, RbelElement>> iterator() {
-        return values.listIterator();
+        return getValues().iterator();
+    }
+
+    /**
+     * Increases with every modification, e.g. to validate views derived from this map.
+     */
+    long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Rejects all further modifications (the map is shared as a cached view).
+     */
+    RbelMultiMap makeReadOnly() {
+        readOnly = true;
+        return this;
+    }
+
+    /**
+     * Modifications of this map are reported to the tree of the given element, so indices over that tree are rebuilt
+     */
+    void setOwner(RbelElement owner) {
+        this.owner = owner;
+    }
+
+    private void beforeModification() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("This map is read-only");
+        }
+        modificationCount++;
+    }
+
+    private void afterModification() {
+        final RbelElement currentOwner = owner;
+        if (currentOwner != null) {
+            currentOwner.markTreeModified();
+        }
+    }
+
+    private Map<String, List<Integer>> findIndex() {
+        final Map<String, List<Integer>> index = positionsByKey;
+        if (index != null || values.size() <= INDEX_THRESHOLD) {
+            return index;
+        }
+        final Map<String, List<Integer>> builtIndex = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            builtIndex.computeIfAbsent(values.get(i).getKey(), key -> new ArrayList<>(1))
+                .add(i);
+        }
+        positionsByKey = builtIndex;
+        return builtIndex;
     }
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import de.gematik.rbellogger.data.facet.RbelFacet;
+import de.gematik.rbellogger.data.facet.RbelJsonFacet;
+import de.gematik.rbellogger.data.facet.RbelNestedFacet;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Inverted index over the tree of a message: from child key to the (parent, child) pairs carrying that key, and from
+ * facet type to the elements carrying such a facet. Built lazily by {@link RbelElement#findTreeIndex()} on the root
+ * element and discarded as soon as a facet is added or replaced anywhere in the tree, or one of the child maps of the
+ * facets is modified.
+ * <p>
+ * Elements are numbered in the order of the recursive descent of RbelPath (first the children of an element, then the
+ * descendants of each child in turn). In that order the descendants of every element form a contiguous range, so all
+ * lookups below an element are a binary search plus a scan of the result.
+ */
+public final class RbelTreeIndex {
+
+    private final long treeVersion;
+    private final Map<RbelElement, Position> positions = new IdentityHashMap<>();
+    private final Map<String, List<KeyedEntry>> entriesByKey = new HashMap<>();
+    private final Map<Class<?>, List<Position>> positionsByFacetType = new HashMap<>();
+    private int nextRank = 0;
+    private boolean complete;
+
+    private RbelTreeIndex(long treeVersion) {
+        this.treeVersion = treeVersion;
+    }
+
+    static RbelTreeIndex build(RbelElement root, long treeVersion) {
+        final RbelTreeIndex index = new RbelTreeIndex(treeVersion);
+        final Position rootPosition = new Position(root, null, -1);
+        index.positions.put(root, rootPosition);
+        index.complete = index.indexDescendants(rootPosition);
+        if (index.complete) {
+            index.entriesByKey.values()
+                .forEach(entries -> entries.sort(Comparator.comparingInt(entry -> entry.parent.rank)));
+        } else {
+            index.positions.clear();
+            index.entriesByKey.clear();
+            index.positionsByFacetType.clear();
+        }
+        return index;
+    }
+
+    long getTreeVersion() {
+        return treeVersion;
+    }
+
+    /**
+     * False if an element is reachable more than once in the tree: the ranges would not be well-defined, so such trees
+     * are not indexed.
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Same elements, in the same order, as the RbelPath steps {@code ..key} executed on {@code start}: the children
+     * with the given key of all descendants of {@code start}.
+     *
+     * @return empty if {@code start} is not part of the indexed tree
+     */
+    public Optional<Stream<RbelElement>> findKeyedChildrenOfDescendants(RbelElement start, String key) {
+        final Position startPosition = positions.get(start);
+        if (startPosition == null) {
+            return Optional.empty();
+        }
+        final List<KeyedEntry> entries = entriesByKey.getOrDefault(key, List.of());
+        final List<KeyedEntry> result = new ArrayList<>();
+        for (int i = lowerBound(entries, startPosition.descendantsFrom);
+            i < entries.size() && entries.get(i).parent.rank < startPosition.descendantsTo; i++) {
+            result.add(entries.get(i));
+        }
+        result.sort(Comparator
+            .comparingLong((KeyedEntry entry) -> candidateOrder(entry.parent, startPosition))
+            .thenComparingInt(entry -> entry.positionInParent));
+        return Optional.of(result.stream().map(entry -> entry.child));
+    }
+
+    /**
+     * All descendants of {@code start} carrying a facet of the given type, in recursive descent order.
+     *
+     * @return empty if {@code start} is not part of the indexed tree
+     */
+    public Optional<List<RbelElement>> findDescendantsWithFacet(RbelElement start, Class<? extends RbelFacet> type) {
+        final Position startPosition = positions.get(start);
+        if (startPosition == null) {
+            return Optional.empty();
+        }
+        return Optional.of(positionsByFacetType.entrySet().stream()
+            .filter(entry -> type.isAssignableFrom(entry.getKey()))
+            .map(Map.Entry::getValue)
+            .flatMap(Collection::stream)
+            .filter(position -> position.rank >= startPosition.descendantsFrom
+                && position.rank < startPosition.descendantsTo)
+            .distinct()
+            .sorted(Comparator.comparingInt(position -> position.rank))
+            .map(position -> position.element)
+            .collect(Collectors.toList()));
+    }
+
+    /**
+     * Numbers the children of an element when it is expanded and expands the children afterwards in turn; an explicit
+     * stack of pending children replaces the recursion, so deeply nested messages cannot overflow the call stack.
+     */
+    private boolean indexDescendants(Position root) {
+        final Deque<Pair<Position, Iterator<Position>>> stack = new ArrayDeque<>();
+        stack.push(Pair.of(root, indexChildren(root)));
+        while (!stack.isEmpty()) {
+            final Pair<Position, Iterator<Position>> current = stack.peek();
+            if (current.getValue() == null) {
+                return false;
+            }
+            if (current.getValue().hasNext()) {
+                final Position child = current.getValue().next();
+                stack.push(Pair.of(child, indexChildren(child)));
+            } else {
+                stack.pop().getKey().descendantsTo = nextRank;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the positions of the children, null if one of them has been indexed before
+     */
+    private Iterator<Position> indexChildren(Position position) {
+        final RbelMultiMap childNodes = position.element.getChildNodesWithKey();
+        position.descendantsFrom = nextRank;
+        final List<Position> childPositions = new ArrayList<>();
+        int positionInParent = 0;
+        for (Map.Entry<String, RbelElement> childEntry : childNodes.getValues()) {
+            final RbelElement child = childEntry.getValue();
+            if (positions.containsKey(child)) {
+                return null;
+            }
+            final Position childPosition = new Position(child, position, nextRank++);
+            positions.put(child, childPosition);
+            childPositions.add(childPosition);
+            if (position.rank >= 0) {
+                entriesByKey.computeIfAbsent(childEntry.getKey(), key -> new ArrayList<>())
+                    .add(new KeyedEntry(position, child, positionInParent));
+            }
+            positionInParent++;
+            for (RbelFacet facet : child.getFacets()) {
+                positionsByFacetType.computeIfAbsent(facet.getClass(), type -> new ArrayList<>())
+                    .add(childPosition);
+            }
+        }
+        return childPositions.iterator();
+    }
+
+    /**
+     * RbelPath places the content node of a JSON wrapper directly in front of the wrapper (see
+     * {@code RbelPathExecutor#descendToContentNodeIfAdvised}), as long as the wrapper itself is a descendant of the
+     * start element.
+     */
+    private long candidateOrder(Position parent, Position start) {
+        final Position wrapper = parent.parent;
+        if (wrapper.rank >= start.descendantsFrom && wrapper.rank < start.descendantsTo
+            && wrapper.element.hasFacet(RbelJsonFacet.class)
+            && wrapper.element.getFacet(RbelNestedFacet.class)
+            .map(RbelNestedFacet::getNestedElement)
+            .filter(nested -> nested == parent.element)
+            .isPresent()) {
+            return 2L * wrapper.rank - 1;
+        }
+        return 2L * parent.rank;
+    }
+
+    private static int lowerBound(List<KeyedEntry> entries, int rank) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (entries.get(middle).parent.rank < rank) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static class Position {
+
+        private final RbelElement element;
+        private final Position parent;
+        private final int rank;
+        private int descendantsFrom;
+        private int descendantsTo;
+
+        private Position(RbelElement element, Position parent, int rank) {
+            this.element = element;
+            this.parent = parent;
+            this.rank = rank;
+        }
+    }
+
+    private static class KeyedEntry {
+
+        private final Position parent;
+        private final RbelElement child;
+        private final int positionInParent;
+
+        private KeyedEntry(Position parent, RbelElement child, int positionInParent) {
+            this.parent = parent;
+            this.child = child;
+            this.positionInParent = positionInParent;
+        }
+    }
+}
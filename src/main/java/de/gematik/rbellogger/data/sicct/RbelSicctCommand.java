@@ -48,11 +48,14 @@ public enum RbelSicctCommand {
     final byte ins;
 
     public static Optional<RbelSicctCommand> from(RbelElement cla, RbelElement ins) {
+        if (cla.getSize() != 1 || ins.getSize() != 1) {
+            return Optional.empty();
+        }
+        final byte claByte = cla.getContent().get(0);
+        final byte insByte = ins.getContent().get(0);
         return Stream.of(values())
-            .filter(cmd -> cla.getRawContent() != null && cla.getRawContent().length == 1)
-            .filter(cmd -> cla.getRawContent()[0] == cmd.cla)
-            .filter(cmd -> ins.getRawContent() != null && ins.getRawContent().length == 1)
-            .filter(cmd -> ins.getRawContent()[0] == cmd.ins)
+            .filter(cmd -> claByte == cmd.cla)
+            .filter(cmd -> insByte == cmd.ins)
             .findAny();
     }
 }
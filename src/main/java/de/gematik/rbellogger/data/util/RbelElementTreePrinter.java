@@ -23,6 +23,8 @@ import de.gematik.rbellogger.data.RbelElement;
 import de.gematik.rbellogger.data.RbelMultiMap;
 import de.gematik.rbellogger.data.facet.RbelFacet;
 import de.gematik.rbellogger.util.RbelAnsiColors;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
@@ -31,6 +33,7 @@ import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 
 @Builder
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
@@ -52,9 +55,7 @@ public class RbelElementTreePrinter {
         final RbelElement position = new RbelElement(null, null);
         position.addFacet(() -> new RbelMultiMap()
             .with(findKeyOfRootElement(), rootElement));
-        return executeRecursive(position, "",
-            Math.max(maximumLevels, maximumLevels + 1) // avoid overflow problems
-        );
+        return printTree(position);
     }
 
     private String findKeyOfRootElement() {
@@ -68,13 +69,25 @@ public class RbelElementTreePrinter {
             .orElse("");
     }
 
-    private String executeRecursive(RbelElement position, String padding, int remainingLevels) {
-        if (remainingLevels <= 0) {
-            return "";
+    /**
+     * Prints the children of the given element and their descendants, up to {@link #maximumLevels} levels below the
+     * printed root element. One child iterator (with the padding of its level) is kept per level instead of recursing,
+     * so deeply nested trees cannot overflow the call stack.
+     */
+    private String printTree(RbelElement position) {
+        final StringBuilder result = new StringBuilder();
+        final Deque<Pair<Iterator<Map.Entry<String, RbelElement>>, String>> levels = new ArrayDeque<>();
+        if (maximumLevels >= 0) {
+            levels.push(Pair.of(position.getChildNodesWithKey().iterator(), ""));
         }
-        String result = "";
-        for (Iterator<Map.Entry<String, RbelElement>> iterator = position.getChildNodesWithKey().iterator(); iterator.hasNext(); ) {
-            Map.Entry<String, RbelElement> childNode = iterator.next();
+        while (!levels.isEmpty()) {
+            final Iterator<Map.Entry<String, RbelElement>> iterator = levels.peek().getKey();
+            if (!iterator.hasNext()) {
+                levels.pop();
+                continue;
+            }
+            final String padding = levels.peek().getValue();
+            final Map.Entry<String, RbelElement> childNode = iterator.next();
             String switchString, padString;
             if (iterator.hasNext()) {
                 switchString = "├──";
@@ -84,19 +97,19 @@ public class RbelElementTreePrinter {
                 padString = "   ";
             }
             // the tree structure
-            result += cl(YELLOW_BRIGHT) + padding + switchString + cl(RESET);
+            result.append(cl(YELLOW_BRIGHT)).append(padding).append(switchString).append(cl(RESET));
             // name of the node
-            result += cl(RED_BOLD) + childNode.getKey() + cl(RESET);
+            result.append(cl(RED_BOLD)).append(childNode.getKey()).append(cl(RESET));
             // print content
-            result += printContentOf(childNode.getValue());
+            result.append(printContentOf(childNode.getValue()));
             // print facet
-            result += printFacets(childNode.getValue());
-            result += "\n";
-            if (!childNode.getValue().getChildNodes().isEmpty()) {
-                result += executeRecursive(childNode.getValue(), padding + padString, remainingLevels - 1);
+            result.append(printFacets(childNode.getValue()));
+            result.append("\n");
+            if (levels.size() <= maximumLevels && !childNode.getValue().getChildNodes().isEmpty()) {
+                levels.push(Pair.of(childNode.getValue().getChildNodesWithKey().iterator(), padding + padString));
             }
         }
-        return result;
+        return result.toString();
     }
 
     private String printFacets(RbelElement value) {
@@ -24,6 +24,7 @@ import lombok.extern.slf4j.Slf4j;
 import javax.crypto.spec.SecretKeySpec;
 import java.security.Key;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -47,7 +48,7 @@ public class RbelKeyManager {
                     .ifPresent(
                             aesKey -> converter.getRbelKeyManager().addKey("token_key", aesKey, RbelKey.PRECEDENCE_KEY_FOLDER));
 
-    private final List<RbelKey> keyList = new ArrayList<>();
+    private final List<RbelKey> keyList = new CopyOnWriteArrayList<>();
 
     public RbelKeyManager addAll(Map<String, RbelKey> keys) {
         keyList.addAll(keys.values());
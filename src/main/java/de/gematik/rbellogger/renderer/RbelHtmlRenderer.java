@@ -26,9 +26,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.RandomStringUtils;
-import org.bouncycastle.util.encoders.Hex;
 
 import javax.annotation.Nullable;
 import java.util.*;
@@ -130,9 +128,9 @@ public class RbelHtmlRenderer {
     @Nullable
     private static String printRawContentOfElement(final RbelElement el,
                                                    final RbelHtmlRenderingToolkit renderingToolkit) {
-        if (renderingToolkit.shouldRenderEntitiesWithSize(el.getRawContent().length)) {
-            if (BinaryClassifier.isBinary(el.getRawContent())) {
-                return Hex.toHexString(el.getRawContent());
+        if (renderingToolkit.shouldRenderEntitiesWithSize(el.getSize())) {
+            if (BinaryClassifier.isBinary(el.getContent())) {
+                return el.getContent().toHexString();
             } else {
                 return el.getRawStringContent();
             }
@@ -143,7 +141,7 @@ public class RbelHtmlRenderer {
 
     public static String buildOversizeReplacementString(RbelElement el) {
         return OVERSIZE_REPLACEMENT_TEXT_PRE
-            + ((el.getRawContent().length / 10_000) / 100.)
+            + ((el.getSize() / 10_000) / 100.)
             + OVERSIZE_REPLACEMENT_TEXT_POST;
     }
 
@@ -164,7 +162,7 @@ public class RbelHtmlRenderer {
 
     public Optional<ContainerTag> convert(final RbelElement element, final Optional<String> key,
                                           final RbelHtmlRenderingToolkit renderingToolkit) {
-        if (element.getFacets().isEmpty() && ArrayUtils.isEmpty(element.getRawContent())) {
+        if (element.getFacets().isEmpty() && element.getSize() == 0) {
             return Optional.empty();
         }
         final List<ContainerTag> renderedFacets = htmlRenderer.stream()
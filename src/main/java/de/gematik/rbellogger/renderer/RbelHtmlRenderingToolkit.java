@@ -142,7 +142,7 @@ public class RbelHtmlRenderingToolkit {
     public ContainerTag convert(final RbelElement element, final Optional<String> key) {
         return convertUnforced(element, key)
             .orElseGet(() -> {
-                if (shouldRenderEntitiesWithSize(element.getRawContent().length)) {
+                if (shouldRenderEntitiesWithSize(element.getSize())) {
                     if (element.hasFacet(RbelBinaryFacet.class)) {
                         return printAsBinary(element);
                     } else {
@@ -172,6 +172,7 @@ public class RbelHtmlRenderingToolkit {
     }
 
     public ContainerTag printAsBinary(final RbelElement el) {
+        final byte[] rawContent = el.getRawContent();
         return
             div(
                 pre().withStyle(HEX_STYLE).withText("Offset    "
@@ -179,13 +180,13 @@ public class RbelHtmlRenderingToolkit {
                     + " | " + "ASCII Text      ")
             )
                 .with(
-                    IntStream.range(0, (el.getRawContent().length + 15) / 16)
+                    IntStream.range(0, (rawContent.length + 15) / 16)
                         .mapToObj(line ->
                             div(
                                 pre().withStyle(HEX_STYLE)
                                     .withText(StringUtils.leftPad(Integer.toHexString(line * 16), 8, '0') + "  "
-                                        + " | " + getLineAsHexString(el.getRawContent(), line)
-                                        + " | " + getLineAsAsciiString(el.getRawContent(), line))
+                                        + " | " + getLineAsHexString(rawContent, line)
+                                        + " | " + getLineAsAsciiString(rawContent, line))
                             )
                         )
                         .collect(Collectors.toList())
@@ -427,7 +428,7 @@ public class RbelHtmlRenderingToolkit {
 
 
     public DomContent formatHex(RbelElement value) {
-        return span().withText(Hex.toHexString(value.getRawContent()))
+        return span().withText(value.getContent().toHexString())
             .withStyle("font-family: monospace; padding-right: 0.3rem;");
     }
 
@@ -436,7 +437,7 @@ public class RbelHtmlRenderingToolkit {
             .withStyle("font-family: monospace; padding-right: 0.3rem;");
     }
 
-    public boolean shouldRenderEntitiesWithSize(int length) {
+    public boolean shouldRenderEntitiesWithSize(long length) {
         return rbelHtmlRenderer.getMaximumEntitySizeInBytes() > length;
     }
 
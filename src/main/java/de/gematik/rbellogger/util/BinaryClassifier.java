@@ -16,20 +16,25 @@
 
 package de.gematik.rbellogger.util;
 
+import de.gematik.rbellogger.data.RbelContent;
+
 public class BinaryClassifier {
 
     private static final int BYTES_TO_CHECK = 100;
 
     public static boolean isBinary(byte[] data) {
-        for (int pos = 0;
-            pos < BYTES_TO_CHECK
-                && pos < data.length; pos++) {
+        return isBinary(RbelContent.of(data));
+    }
+
+    public static boolean isBinary(RbelContent data) {
+        for (int pos = 0; pos < BYTES_TO_CHECK && pos < data.size(); pos++) {
+            final byte value = data.get(pos);
             //CR LF
-            if (data[pos] == 0xA
-                || data[pos] == 0xD) {
+            if (value == 0xA
+                || value == 0xD) {
                 continue;
             }
-            if (data[pos] < 0x20) {
+            if (value < 0x20) {
                 return true;
             }
         }
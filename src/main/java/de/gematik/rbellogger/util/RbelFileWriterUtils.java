@@ -84,7 +84,7 @@ public class RbelFileWriterUtils {
     private static Optional<RbelElement> parseFileObject(RbelConverter rbelConverter, JSONObject messageObject) {
         try {
             final String msgUuid = messageObject.optString(MESSAGE_UUID);
-            if (new ArrayList<>(rbelConverter.getMessageHistory()).stream()
+            if (rbelConverter.getMessageHistory().snapshot().stream()
                 .anyMatch(msg -> msg.getUuid().equals(msgUuid))) {
                 return Optional.empty();
             }
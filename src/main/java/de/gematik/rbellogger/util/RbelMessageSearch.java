@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.util;
+
+import de.gematik.rbellogger.converter.RbelJexlExecutor;
+import de.gematik.rbellogger.data.RbelElement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Searches a list of messages (typically a snapshot of the message history) for the first messages matching a
+ * criterion. The criterion is compiled once and evaluated in parallel in the common ForkJoin pool, window by window in
+ * sequence order, so the search stops as soon as a window completes the requested number of results.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RbelMessageSearch {
+
+    private static final int MINIMUM_WINDOW_SIZE = 1024;
+    private static final int WINDOW_SIZE_PER_THREAD = 256;
+
+    private final Predicate<RbelElement> criterion;
+
+    /**
+     * Messages for which the JEXL expression evaluates to true. RbelPaths can be used as in all other JEXL criteria,
+     * e.g. {@code $.header.Host == 'localhost'} or {@code rbel:element('$..nonce') != null}.
+     */
+    public static RbelMessageSearch forJexlExpression(String jexlExpression) {
+        final RbelJexlExecutor jexlExecutor = new RbelJexlExecutor();
+        return new RbelMessageSearch(message -> jexlExecutor.matchesAsJexlExpression(message, jexlExpression));
+    }
+
+    /**
+     * Messages in which the RbelPath resolves to at least one element.
+     */
+    public static RbelMessageSearch forRbelPath(String rbelPath) {
+        final RbelPath compiledPath = RbelPath.compile(rbelPath);
+        return new RbelMessageSearch(message -> compiledPath.stream(message).findAny().isPresent());
+    }
+
+    /**
+     * The predicate has to be thread-safe.
+     */
+    public static RbelMessageSearch forPredicate(Predicate<RbelElement> criterion) {
+        return new RbelMessageSearch(criterion);
+    }
+
+    /**
+     * @param messages random-access list which is not modified during the search
+     * @param limit    maximum number of results, {@link Integer#MAX_VALUE} for all
+     * @return the first {@code limit} matching messages, in the order of {@code messages}
+     */
+    public List<RbelElement> findMatches(List<RbelElement> messages, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative, got " + limit);
+        }
+        final int windowSize = Math.max(MINIMUM_WINDOW_SIZE,
+            ForkJoinPool.getCommonPoolParallelism() * WINDOW_SIZE_PER_THREAD);
+        final List<RbelElement> result = new ArrayList<>();
+        for (int from = 0; from < messages.size() && result.size() < limit; from += windowSize) {
+            final List<RbelElement> window = messages.subList(from, Math.min(messages.size(), from + windowSize));
+            result.addAll(window.parallelStream()
+                .filter(criterion)
+                .limit((long) limit - result.size())
+                .collect(Collectors.toList()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import de.gematik.rbellogger.data.RbelElement;
+import de.gematik.rbellogger.exceptions.RbelPathException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * Compiled RbelPath expression: an immutable plan of typed steps, parsed once and shared between all executions.
+ * {@link #compile(String)} keeps the most recently used plans in a bounded cache, so repeatedly evaluated paths are
+ * only parsed once.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RbelPath {
+
+    private static final int MAXIMUM_CACHED_PATHS = 1024;
+    private static final Cache<String, RbelPath> COMPILED_PATHS = CacheBuilder.newBuilder()
+        .maximumSize(MAXIMUM_CACHED_PATHS)
+        .build();
+
+    private final String expression;
+    private final List<Step> steps;
+
+    public static RbelPath compile(String rbelPath) {
+        final RbelPath cached = COMPILED_PATHS.getIfPresent(rbelPath);
+        if (cached != null) {
+            return cached;
+        }
+        final RbelPath compiled = parse(rbelPath);
+        COMPILED_PATHS.put(rbelPath, compiled);
+        return compiled;
+    }
+
+    public List<RbelElement> execute(RbelElement rootElement) {
+        return new RbelPathExecutor(rootElement, this).execute();
+    }
+
+    public Stream<RbelElement> stream(RbelElement rootElement) {
+        return new RbelPathExecutor(rootElement, this).stream();
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private static RbelPath parse(String rbelPath) {
+        if (!rbelPath.startsWith("$")) {
+            throw new RbelPathException("RbelPath expressions always start with $.");
+        }
+        if (rbelPath.length() < 2) {
+            throw new RbelPathException("RbelPath expression '" + rbelPath + "' does not contain any key");
+        }
+        final List<Step> steps = new ArrayList<>();
+        for (String key : rbelPath.substring(2).split("\\.(?![^\\(]*\\))")) {
+            steps.add(parseStep(key));
+        }
+        return new RbelPath(rbelPath, Collections.unmodifiableList(steps));
+    }
+
+    private static Step parseStep(String key) {
+        final String[] parts = key.split("\\[", 2);
+        final String selectorPart = parts[0];
+        final SelectorType selectorType;
+        if (selectorPart.isEmpty()) {
+            selectorType = SelectorType.RECURSIVE_DESCENT;
+        } else if (selectorPart.equals("*")) {
+            selectorType = SelectorType.WILDCARD;
+        } else {
+            selectorType = SelectorType.KEY;
+        }
+        if (parts.length == 1) {
+            return new Step(key, selectorType, selectorPart, FilterType.NONE, null, -1);
+        }
+        final String functionalPart = parts[1].substring(0, parts[1].length() - 1);
+        if (NumberUtils.isParsable(functionalPart)) {
+            return new Step(key, selectorType, selectorPart, FilterType.INDEX, null, parseIndex(functionalPart));
+        } else if (functionalPart.startsWith("'") && functionalPart.endsWith("'")) {
+            return new Step(key, selectorType, selectorPart, FilterType.KEY,
+                functionalPart.substring(1, functionalPart.length() - 1), -1);
+        } else if (functionalPart.equals("*")) {
+            return new Step(key, selectorType, selectorPart, FilterType.WILDCARD, null, -1);
+        } else if (functionalPart.startsWith("?")) {
+            if (functionalPart.startsWith("?(") && functionalPart.endsWith(")")) {
+                return new Step(key, selectorType, selectorPart, FilterType.JEXL,
+                    functionalPart.substring(2, functionalPart.length() - 1), -1);
+            } else {
+                throw new RbelPathException(
+                    "Invalid JEXL-Expression encountered (Does not start with '?(' and end with ')'): "
+                        + functionalPart);
+            }
+        } else {
+            throw new RbelPathException("Unknown function expression encountered: " + functionalPart);
+        }
+    }
+
+    private static int parseIndex(String index) {
+        try {
+            final int result = Integer.parseInt(index);
+            if (result >= 0) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new RbelPathException("Invalid index encountered: " + index);
+    }
+
+    public enum SelectorType {
+        /**
+         * Selects the children with the given key
+         */
+        KEY,
+        /**
+         * Selects all direct children
+         */
+        WILDCARD,
+        /**
+         * Selects all descendants (empty key, e.g. in {@code $..foo})
+         */
+        RECURSIVE_DESCENT
+    }
+
+    public enum FilterType {
+        NONE,
+        /**
+         * Selects the n-th element of the selection, e.g. {@code [1]}
+         */
+        INDEX,
+        /**
+         * Selects the children with the given key of the parent of every selected element, e.g. {@code ['foo']}
+         */
+        KEY,
+        /**
+         * Selects all children of the parent of every selected element, e.g. {@code [*]}
+         */
+        WILDCARD,
+        /**
+         * Selects the children of the parent of every selected element matching the JEXL expression, e.g.
+         * {@code [?(key=='foo')]}
+         */
+        JEXL
+    }
+
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Step {
+
+        private final String text;
+        private final SelectorType selectorType;
+        private final String selectorKey;
+        private final FilterType filterType;
+        /**
+         * Key for {@link FilterType#KEY}, expression for {@link FilterType#JEXL}
+         */
+        private final String filterArgument;
+        private final int index;
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
@@ -25,55 +25,54 @@ import de.gematik.rbellogger.data.facet.RbelNestedFacet;
 import de.gematik.rbellogger.exceptions.RbelPathException;
 import java.util.*;
 import java.util.stream.Collectors;
-import lombok.RequiredArgsConstructor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.math.NumberUtils;
 
-@RequiredArgsConstructor
 @Slf4j
 public class RbelPathExecutor {
 
+    private static final RbelJexlExecutor JEXL_EXECUTOR = new RbelJexlExecutor();
+
     private final RbelElement rbelElement;
-    private final String rbelPath;
-
-    private static List<RbelElement> findAllChildsRecursive(final RbelElement element) {
-        final List<? extends RbelElement> childNodes = element.getChildNodes();
-        List<RbelElement> result = new ArrayList<>(childNodes);
-        childNodes.stream()
-            .map(RbelPathExecutor::findAllChildsRecursive)
-            .filter(Objects::nonNull)
-            .flatMap(List::stream)
-            .forEach(result::add);
-        return result;
+    private final RbelPath rbelPath;
+
+    public RbelPathExecutor(RbelElement rbelElement, String rbelPath) {
+        this(rbelElement, RbelPath.compile(rbelPath));
+    }
+
+    public RbelPathExecutor(RbelElement rbelElement, RbelPath rbelPath) {
+        this.rbelElement = rbelElement;
+        this.rbelPath = rbelPath;
+    }
+
+    /**
+     * All descendants of the element in the order of the original recursive descent: first the direct children, then
+     * the descendants of each child in turn. Produced lazily, so callers can stop early.
+     */
+    private static Stream<RbelElement> findAllChildsRecursive(final RbelElement element) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+            new DescendantIterator(element), Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 
     public List<RbelElement> execute() {
-        if (!rbelPath.startsWith("$")) {
-            throw new RbelPathException("RbelPath expressions always start with $.");
+        if (!ACTIVATE_RBEL_PATH_DEBUGGING) {
+            return stream().collect(Collectors.toUnmodifiableList());
         }
-        final List<String> keys = List.of(rbelPath.substring(2).split("\\.(?![^\\(]*\\))"));
+        final List<RbelPath.Step> steps = rbelPath.getSteps();
         List<RbelElement> candidates = List.of(rbelElement);
-        if (ACTIVATE_RBEL_PATH_DEBUGGING) {
-            log.info("Executing RBelPath {} into root-element (limited view to {} levels)\n{}",
-                rbelPath, Math.max(RBEL_PATH_TREE_VIEW_MINIMUM_DEPTH, keys.size()),
-                rbelElement.printTreeStructure(Math.max(RBEL_PATH_TREE_VIEW_MINIMUM_DEPTH, keys.size()), false));
-        }
-        for (String key : keys) {
-            if (ACTIVATE_RBEL_PATH_DEBUGGING) {
-                log.info("Resolving key '{}' with candidates {}", key, candidates.stream()
-                    .flatMap(el -> el.getChildNodesWithKey().stream())
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toList()));
-            }
+        log.info("Executing RBelPath {} into root-element (limited view to {} levels)\n{}",
+            rbelPath, Math.max(RBEL_PATH_TREE_VIEW_MINIMUM_DEPTH, steps.size()),
+            rbelElement.printTreeStructure(Math.max(RBEL_PATH_TREE_VIEW_MINIMUM_DEPTH, steps.size()), false));
+        for (RbelPath.Step step : steps) {
+            log.info("Resolving key '{}' with candidates {}", step, candidates.stream()
+                .flatMap(el -> el.getChildNodesWithKey().stream())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList()));
             List<RbelElement> lastIterationCandidates = candidates;
-            candidates = candidates.stream()
-                .map(element -> resolveRbelPathElement(key, element))
-                .flatMap(List::stream)
-                .map(this::descendToContentNodeIfAdvised)
-                .flatMap(List::stream)
-                .distinct()
+            candidates = executeStep(step, candidates.stream())
                 .collect(Collectors.toUnmodifiableList());
-            if (candidates.isEmpty() && ACTIVATE_RBEL_PATH_DEBUGGING) {
+            if (candidates.isEmpty()) {
                 log.warn("No more candidate-nodes in RbelPath execution! Last batch of candidates had {} elements: \n {}",
                     lastIterationCandidates.size(),
                     lastIterationCandidates.stream()
@@ -83,85 +82,162 @@ public class RbelPathExecutor {
         }
 
         final List<RbelElement> resultList = candidates.stream()
-            .filter(el -> !(el.hasFacet(RbelJsonFacet.class) && el.hasFacet(RbelNestedFacet.class)))
+            .filter(el -> !isJsonContentWrapper(el))
             .collect(Collectors.toUnmodifiableList());
+        log.info("Returning {} result elements for RbelPath {}", resultList.size(), rbelPath);
+        return resultList;
+    }
+
+    /**
+     * Lazily evaluated results, in the same order as {@link #execute()}. Nothing is resolved beyond what the terminal
+     * operation consumes, e.g. {@code findFirst()} stops at the first match.
+     */
+    public Stream<RbelElement> stream() {
         if (ACTIVATE_RBEL_PATH_DEBUGGING) {
-            log.info("Returning {} result elements for RbelPath {}", resultList.size(), rbelPath);
+            return execute().stream();
         }
-        return resultList;
+        final List<RbelPath.Step> steps = rbelPath.getSteps();
+        Stream<RbelElement> candidates = Stream.of(rbelElement);
+        for (int i = 0; i < steps.size(); i++) {
+            if (i + 1 < steps.size() && isKeyedDescent(steps.get(i), steps.get(i + 1))) {
+                candidates = executeKeyedDescent(steps.get(i), steps.get(i + 1), candidates);
+                i++;
+            } else {
+                candidates = executeStep(steps.get(i), candidates);
+            }
+        }
+        return candidates
+            .filter(el -> !isJsonContentWrapper(el));
+    }
+
+    /**
+     * {@code ..key}: a plain recursive descent followed by a plain key selection, which the tree index can answer
+     * directly.
+     */
+    private static boolean isKeyedDescent(RbelPath.Step step, RbelPath.Step nextStep) {
+        return step.getSelectorType() == RbelPath.SelectorType.RECURSIVE_DESCENT
+            && step.getFilterType() == RbelPath.FilterType.NONE
+            && nextStep.getSelectorType() == RbelPath.SelectorType.KEY
+            && nextStep.getFilterType() == RbelPath.FilterType.NONE;
+    }
+
+    private Stream<RbelElement> executeKeyedDescent(RbelPath.Step descentStep, RbelPath.Step keyStep,
+        Stream<RbelElement> candidates) {
+        return candidates
+            .flatMap(candidate -> candidate.findTreeIndex()
+                .flatMap(index -> index.findKeyedChildrenOfDescendants(candidate, keyStep.getSelectorKey()))
+                .orElseGet(() -> executeStep(descentStep, Stream.of(candidate))
+                    .flatMap(element -> resolveRbelPathElement(keyStep, element))))
+            .flatMap(this::descendToContentNodeIfAdvised)
+            .distinct();
+    }
+
+    private Stream<RbelElement> executeStep(RbelPath.Step step, Stream<RbelElement> candidates) {
+        return candidates
+            .flatMap(element -> resolveRbelPathElement(step, element))
+            .flatMap(this::descendToContentNodeIfAdvised)
+            .distinct();
+    }
+
+    private static boolean isJsonContentWrapper(RbelElement element) {
+        return element.hasFacet(RbelJsonFacet.class) && element.hasFacet(RbelNestedFacet.class);
     }
 
-    private List<RbelElement> descendToContentNodeIfAdvised(RbelElement rbelElement) {
-        if (rbelElement.hasFacet(RbelJsonFacet.class)
-            && rbelElement.hasFacet(RbelNestedFacet.class)) {
-            return List.of(rbelElement.getFacet(RbelNestedFacet.class)
+    private Stream<RbelElement> descendToContentNodeIfAdvised(RbelElement rbelElement) {
+        if (isJsonContentWrapper(rbelElement)) {
+            return Stream.of(rbelElement.getFacet(RbelNestedFacet.class)
                     .map(RbelNestedFacet::getNestedElement)
                     .get(),
                 rbelElement);
         } else {
-            return List.of(rbelElement);
+            return Stream.of(rbelElement);
         }
     }
 
-    private List<? extends RbelElement> resolveRbelPathElement(final String key, final RbelElement element) {
-        final String[] parts = key.split("\\[", 2);
-        final String selectorPart = parts[0];
-        List<? extends RbelElement> keySelectionResult = executeNonFunctionalExpression(selectorPart, element);
-        if (parts.length == 1) {
-            return keySelectionResult;
-        } else {
-            final String functionalPart = parts[1].substring(0, parts[1].length() - 1);
-            if (NumberUtils.isParsable(functionalPart)) {
-                final int selectionIndex = Integer.parseInt(parts[1].substring(0, parts[1].length() - 1));
-                if (keySelectionResult.size() <= selectionIndex) {
-                    return Collections.emptyList();
-                }
-                return List.of(keySelectionResult.get(selectionIndex));
-            } else {
-                return keySelectionResult.stream()
-                    .map(candidate -> executeFunctionalExpression(functionalPart, candidate.getParentNode()))
-                    .flatMap(List::stream)
-                    .collect(Collectors.toList());
-            }
+    private Stream<RbelElement> resolveRbelPathElement(final RbelPath.Step step, final RbelElement element) {
+        final Stream<RbelElement> keySelectionResult = executeNonFunctionalExpression(step, element);
+        switch (step.getFilterType()) {
+            case NONE:
+                return keySelectionResult;
+            case INDEX:
+                return keySelectionResult
+                    .skip(step.getIndex())
+                    .limit(1);
+            default:
+                return keySelectionResult
+                    .flatMap(candidate -> executeFunctionalExpression(step, candidate.getParentNode()));
         }
     }
 
-    private List<? extends RbelElement> executeNonFunctionalExpression(String key, RbelElement element) {
-        if (key.isEmpty()) {
-            return findAllChildsRecursive(element);
-        } else if (key.equals("*")) {
-            return element.getChildNodes();
-        } else {
-            return element.getAll(key);
+    private Stream<RbelElement> executeNonFunctionalExpression(RbelPath.Step step, RbelElement element) {
+        switch (step.getSelectorType()) {
+            case RECURSIVE_DESCENT:
+                return findAllChildsRecursive(element);
+            case WILDCARD:
+                return element.getChildNodes().stream().map(RbelElement.class::cast);
+            default:
+                return element.getAll(step.getSelectorKey()).stream().map(RbelElement.class::cast);
         }
     }
 
-    private List<? extends RbelElement> executeFunctionalExpression(
-        final String functionExpression, final RbelElement element) {
-        if (functionExpression.startsWith("'") && functionExpression.endsWith("'")) {
-            return element.getAll(functionExpression.substring(1, functionExpression.length() - 1));
-        } else if (functionExpression.equals("*")) {
-            return element.getChildNodes();
-        } else if (functionExpression.startsWith("?")) {
-            if (functionExpression.startsWith("?(") && functionExpression.endsWith(")")) {
-                return findChildNodesByJexlExpression(element,
-                    functionExpression.substring(2, functionExpression.length() - 1));
-            } else {
-                throw new RbelPathException(
-                    "Invalid JEXL-Expression encountered (Does not start with '?(' and end with ')'): "
-                        + functionExpression);
-            }
-        } else {
-            throw new RbelPathException("Unknown function expression encountered: " + functionExpression);
+    private Stream<RbelElement> executeFunctionalExpression(
+        final RbelPath.Step step, final RbelElement element) {
+        switch (step.getFilterType()) {
+            case KEY:
+                return element.getAll(step.getFilterArgument()).stream().map(RbelElement.class::cast);
+            case WILDCARD:
+                return element.getChildNodes().stream().map(RbelElement.class::cast);
+            case JEXL:
+                return findChildNodesByJexlExpression(element, step.getFilterArgument());
+            default:
+                throw new RbelPathException("Unknown function expression encountered: " + step);
         }
     }
 
-    private List<RbelElement> findChildNodesByJexlExpression(final RbelElement element, final String jexl) {
-        RbelJexlExecutor executor = new RbelJexlExecutor();
+    private Stream<RbelElement> findChildNodesByJexlExpression(final RbelElement element, final String jexl) {
         return element.getChildNodesWithKey().stream()
             .filter(candidate ->
-                executor.matchesAsJexlExpression(candidate.getValue(), jexl, Optional.of(candidate.getKey())))
-            .map(Map.Entry::getValue)
-            .collect(Collectors.toList());
+                JEXL_EXECUTOR.matchesAsJexlExpression(candidate.getValue(), jexl, Optional.of(candidate.getKey())))
+            .map(Map.Entry::getValue);
+    }
+
+    private static class DescendantIterator implements Iterator<RbelElement> {
+
+        private final Deque<Iterator<? extends RbelElement>> pendingExpansions = new ArrayDeque<>();
+        private Iterator<? extends RbelElement> currentChildren;
+
+        private DescendantIterator(RbelElement root) {
+            expand(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!currentChildren.hasNext()) {
+                final Iterator<? extends RbelElement> expansion = pendingExpansions.peek();
+                if (expansion == null) {
+                    return false;
+                }
+                if (expansion.hasNext()) {
+                    expand(expansion.next());
+                } else {
+                    pendingExpansions.pop();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public RbelElement next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return currentChildren.next();
+        }
+
+        private void expand(RbelElement element) {
+            final List<? extends RbelElement> childNodes = element.getChildNodes();
+            currentChildren = childNodes.iterator();
+            pendingExpansions.push(childNodes.iterator());
+        }
     }
 }
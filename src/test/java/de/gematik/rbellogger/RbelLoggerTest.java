@@ -26,7 +26,9 @@ import de.gematik.rbellogger.key.RbelKey;
 import de.gematik.rbellogger.key.RbelKeyManager;
 import de.gematik.rbellogger.renderer.RbelHtmlRenderer;
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import lombok.SneakyThrows;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
@@ -134,4 +136,32 @@ public class RbelLoggerTest {
                 .get()
                 .isEqualTo("IDP symmetricEncryptionKey");
     }
+
+    @Test
+    public void findMessages_shouldReturnFirstMatchesInSequenceOrder() throws IOException {
+        final String responseMessage = readCurlFromFileWithCorrectedLineBreaks
+                ("src/test/resources/sampleMessages/xmlMessage.curl");
+        final String requestMessage = readCurlFromFileWithCorrectedLineBreaks
+                ("src/test/resources/sampleMessages/getRequest.curl");
+        final RbelLogger rbelLogger = RbelLogger.build();
+        for (int i = 0; i < 30; i++) {
+            rbelLogger.getRbelConverter().parseMessage((i % 3 == 0 ? requestMessage : responseMessage).getBytes(),
+                null, null, Optional.empty());
+        }
+        final List<RbelElement> history = rbelLogger.getMessageHistory();
+        final List<RbelElement> requestMessages = history.stream()
+            .filter(message -> !message.findRbelPathMembers("$.method").isEmpty())
+            .collect(Collectors.toList());
+
+        assertThat(rbelLogger.findMessagesWithRbelPath("$.method", 50))
+            .containsExactlyElementsOf(requestMessages.subList(0, 10));
+        assertThat(rbelLogger.findMessagesWithRbelPath("$.method", 5))
+            .containsExactlyElementsOf(requestMessages.subList(0, 5));
+        assertThat(rbelLogger.findMessages(message -> message == history.get(25), Integer.MAX_VALUE))
+            .containsExactly(history.get(25));
+        assertThat(rbelLogger.findMessages("isRequest", 3))
+            .containsExactly(history.get(0), history.get(3), history.get(6));
+        assertThat(rbelLogger.findMessages("isRequest", 0))
+            .isEmpty();
+    }
 }
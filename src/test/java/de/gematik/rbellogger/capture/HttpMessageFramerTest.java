@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.capture;
+
+import de.gematik.rbellogger.captures.TcpStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpMessageFramerTest {
+
+    private final TcpStream stream = new TcpStream();
+    private long sequenceNumber = 0;
+
+    private List<String> receive(String... segments) {
+        final List<String> result = new ArrayList<>();
+        for (String segment : segments) {
+            final byte[] bytes = segment.getBytes(StandardCharsets.US_ASCII);
+            stream.addSegment(sequenceNumber, bytes);
+            sequenceNumber += bytes.length;
+            stream.getHttpMessageFramer().extractCompletedMessages(stream)
+                .forEach(message -> result.add(new String(message, StandardCharsets.US_ASCII)));
+        }
+        return result;
+    }
+
+    @Test
+    public void messageSplitIntoSegments_shouldBeFramedByContentLength() {
+        assertThat(receive("POST /foo HTTP/1.1\r\nContent-", "Length: 10\r\n\r\n01234", "56789"))
+            .containsExactly("POST /foo HTTP/1.1\r\nContent-Length: 10\r\n\r\n0123456789");
+        assertThat(stream.getBufferedLength()).isZero();
+    }
+
+    @Test
+    public void pipelinedMessages_shouldBeFramedExactly() {
+        assertThat(receive("GET /a HTTP/1.1\r\nHost: x\r\n\r\nGET /b HTTP/1.1\r\n\r\nPOST /c HTTP/1.1\r\n"
+            + "content-length: 2\r\n\r\nok", "GET /d HTTP/1.1\r\n"))
+            .containsExactly("GET /a HTTP/1.1\r\nHost: x\r\n\r\n", "GET /b HTTP/1.1\r\n\r\n",
+                "POST /c HTTP/1.1\r\ncontent-length: 2\r\n\r\nok");
+        assertThat(receive("\r\n")).containsExactly("GET /d HTTP/1.1\r\n\r\n");
+    }
+
+    @Test
+    public void chunkedMessage_shouldEndAfterLastChunkAndTrailers() {
+        assertThat(receive("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n4\r\nWi",
+            "ki\r\n3;ext=1\r\nabc\r\n0\r\nTrailer: x\r\n", "\r\nHTTP/1.1 204 No Content\r\n\r\n"))
+            .containsExactly("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n4\r\nWiki\r\n3;ext=1\r\nabc\r\n"
+                    + "0\r\nTrailer: x\r\n\r\n",
+                "HTTP/1.1 204 No Content\r\n\r\n");
+    }
+
+    @Test
+    public void responseWithoutLength_shouldStayOpenUntilFlushed() {
+        assertThat(receive("HTTP/1.0 200 OK\r\nConnection: close\r\n\r\nfirst ", "second ", "third")).isEmpty();
+
+        assertThat(stream.getHttpMessageFramer().flush(stream))
+            .map(message -> new String(message, StandardCharsets.US_ASCII))
+            .contains("HTTP/1.0 200 OK\r\nConnection: close\r\n\r\nfirst second third");
+        assertThat(stream.getBufferedLength()).isZero();
+        assertThat(stream.getHttpMessageFramer().flush(stream)).isEmpty();
+    }
+
+    @Test
+    public void incompleteMessageWithLength_shouldNotBeFlushed() {
+        assertThat(receive("POST /foo HTTP/1.1\r\nContent-Length: 10\r\n\r\n01234")).isEmpty();
+
+        assertThat(stream.getHttpMessageFramer().flush(stream)).isEmpty();
+    }
+
+    @Test
+    public void dataNotStartingWithHttpMessage_shouldBeDropped() {
+        assertThat(receive("\u0016\u0003\u0001garbage", "GE", "T / HTTP/1.1\r\n\r\n"))
+            .containsExactly("GET / HTTP/1.1\r\n\r\n");
+    }
+}
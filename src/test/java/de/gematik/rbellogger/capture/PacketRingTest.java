@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.capture;
+
+import de.gematik.rbellogger.captures.PacketRing;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PacketRingTest {
+
+    private static final Instant TIMESTAMP = Instant.parse("2022-02-01T10:00:00Z");
+
+    @Test
+    public void everyConsumer_shouldSeeAllPacketsInOrder() throws InterruptedException {
+        final PacketRing ring = new PacketRing(8, 2, 4);
+        final List<List<Integer>> received = List.of(new ArrayList<>(), new ArrayList<>());
+        final List<Thread> consumers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            final int consumer = i;
+            final Thread thread = new Thread(() -> ring.consume(consumer,
+                (data, length, timestamp) -> received.get(consumer).add(ByteBuffer.wrap(data, 0, length).getInt())));
+            thread.start();
+            consumers.add(thread);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(ring.offer(ByteBuffer.allocate(4).putInt(i).array(), 4, TIMESTAMP, 10, TimeUnit.SECONDS))
+                .isTrue();
+        }
+        ring.halt();
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+
+        assertThat(ring.getPublishedPackets()).isEqualTo(10_000);
+        assertThat(ring.getDroppedPackets()).isZero();
+        for (List<Integer> packets : received) {
+            assertThat(packets).hasSize(10_000);
+            for (int i = 0; i < packets.size(); i++) {
+                assertThat(packets.get(i)).isEqualTo(i);
+            }
+        }
+    }
+
+    @Test
+    public void fullRing_shouldDropAndCountBackpressure() throws InterruptedException {
+        final PacketRing ring = new PacketRing(3, 1, 0);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> received = new ArrayList<>();
+
+        assertThat(ring.getCapacity()).isEqualTo(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(new byte[]{(byte) i}, 1, TIMESTAMP, 0, TimeUnit.MILLISECONDS)).isTrue();
+        }
+        assertThat(ring.offer(new byte[]{4}, 1, TIMESTAMP, 1, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(ring.getBackpressureEvents()).isEqualTo(1);
+        assertThat(ring.getDroppedPackets()).isEqualTo(1);
+
+        final Thread consumer = new Thread(() -> ring.consume(0, (data, length, timestamp) -> {
+            received.add(data[0] + "@" + timestamp);
+            release.countDown();
+        }));
+        consumer.start();
+        assertThat(release.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(ring.offer(new byte[]{5}, 1, TIMESTAMP, 10, TimeUnit.SECONDS)).isTrue();
+        ring.halt();
+        consumer.join();
+
+        assertThat(received).containsExactly("0@" + TIMESTAMP, "1@" + TIMESTAMP, "2@" + TIMESTAMP,
+            "3@" + TIMESTAMP, "5@" + TIMESTAMP);
+        assertThat(ring.offer(new byte[]{6}, 1, TIMESTAMP, 0, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    @Test
+    public void offeredPackets_shouldBeCopiedIntoTheSlots() throws InterruptedException {
+        final PacketRing ring = new PacketRing(2, 1, 1);
+        final byte[] source = {1, 2, 3};
+        final List<String> received = new ArrayList<>();
+
+        ring.offer(source, 3, TIMESTAMP, 0, TimeUnit.MILLISECONDS);
+        source[0] = 9;
+        ring.offer(source, 2, TIMESTAMP, 0, TimeUnit.MILLISECONDS);
+        ring.halt();
+        ring.consume(0, (data, length, timestamp) -> received.add(new String(data, 0, length).chars()
+            .mapToObj(Integer::toString).reduce("", String::concat)));
+
+        assertThat(received).containsExactly("123", "92");
+    }
+}
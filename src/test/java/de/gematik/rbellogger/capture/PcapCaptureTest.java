@@ -41,6 +41,7 @@ import java.io.File;
 import java.nio.charset.Charset;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -121,6 +122,27 @@ public class PcapCaptureTest {
             .isEqualTo("127.0.0.1:8080");
     }
 
+    @Test
+    public void pcapFile_messagesShouldCarryTheCaptureTime() {
+        final PCapCapture pCapCapture = PCapCapture.builder()
+            .pcapFile("src/test/resources/discDoc.pcap")
+            .printMessageToSystemOut(false)
+            .build();
+        final RbelLogger rbelLogger = RbelLogger.build(new RbelConfiguration()
+            .addCapturer(pCapCapture));
+
+        pCapCapture.initialize();
+
+        assertThat(rbelLogger.getMessageHistory())
+            .isNotEmpty()
+            .allSatisfy(message -> assertThat(message.getFacetOrFail(RbelMessageTimingFacet.class)
+                .getTransmissionTime())
+                .isBefore(ZonedDateTime.now().minusDays(1)));
+        assertThat(rbelLogger.getMessageHistory())
+            .extracting(message -> message.getFacetOrFail(RbelMessageTimingFacet.class).getTransmissionTime())
+            .isSortedAccordingTo(Comparator.naturalOrder());
+    }
+
     @SneakyThrows
     @Test
     public void readPcapFile_shouldParseMessages() {
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.capture;
+
+import de.gematik.rbellogger.captures.TcpFlow;
+import de.gematik.rbellogger.captures.TcpFlowTable;
+import de.gematik.rbellogger.captures.TcpPacketView;
+import de.gematik.rbellogger.data.RbelHostname;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TcpFlowTableTest {
+
+    private static final Instant START = Instant.parse("2022-02-01T10:00:00Z");
+    private static final RbelHostname CLIENT = new RbelHostname("10.0.0.2", 51000);
+    private static final RbelHostname OTHER_CLIENT = new RbelHostname("10.0.0.3", 51000);
+    private static final RbelHostname SERVER = new RbelHostname("10.0.0.1", 8080);
+
+    @Test
+    public void bothDirections_shouldShareOneFlowWithRolesFromTheHandshake() {
+        final TcpFlowTable flowTable = new TcpFlowTable();
+        final TcpFlow flow = flowTable.getFlow(SERVER, CLIENT, START);
+        flow.observeHandshake(SERVER, true, true);
+
+        assertThat(flowTable.getFlow(CLIENT, SERVER, START)).isSameAs(flow);
+        assertThat(flowTable.getFlow(OTHER_CLIENT, SERVER, START)).isNotSameAs(flow);
+        assertThat(flow.getClient()).contains(CLIENT);
+        assertThat(flow.getServer()).contains(SERVER);
+        assertThat(flow.getStreamFrom(CLIENT)).isNotSameAs(flow.getStreamFrom(SERVER));
+    }
+
+    @Test
+    public void capturedPacketsOfBothDirections_shouldShareOneFlow() {
+        final TcpFlowTable flowTable = new TcpFlowTable();
+        final TcpPacketView view = new TcpPacketView();
+
+        view.wrapIpPacket(tcpPacket(new byte[]{10, 0, 0, 2}, 51000, new byte[]{10, 0, 0, 1}, 8080), 0, 40);
+        final TcpFlow flow = flowTable.getFlow(view, START);
+        assertThat(flow.getSenderOf(view)).isEqualTo(CLIENT);
+        assertThat(flow.getPeerOf(flow.getSenderOf(view))).isEqualTo(SERVER);
+
+        view.wrapIpPacket(tcpPacket(new byte[]{10, 0, 0, 1}, 8080, new byte[]{10, 0, 0, 2}, 51000), 0, 40);
+        assertThat(flowTable.getFlow(view, START)).isSameAs(flow);
+        assertThat(flow.getSenderOf(view)).isSameAs(flow.getPeerOf(CLIENT)).isEqualTo(SERVER);
+
+        view.wrapIpPacket(tcpPacket(new byte[]{10, 0, 0, 1}, 8080, new byte[]{10, 0, 0, 3}, 51000), 0, 40);
+        assertThat(flowTable.getFlow(view, START)).isNotSameAs(flow);
+        assertThat(flowTable.getFlowCount()).isEqualTo(2);
+
+        flowTable.remove(flow);
+        assertThat(flowTable.getFlowCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void rolesWithoutHandshake_shouldBeTakenFromTheFirstMessage() {
+        final TcpFlow flow = new TcpFlowTable().getFlow(SERVER, CLIENT, START);
+        flow.observeMessage(SERVER, "HTTP/1.1 200 OK\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        flow.observeMessage(CLIENT, "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(flow.getClient()).contains(CLIENT);
+    }
+
+    @Test
+    public void idleFlows_shouldBeExpired() {
+        final TcpFlowTable flowTable = new TcpFlowTable(Duration.ofSeconds(30), Long.MAX_VALUE);
+        final TcpFlow idleFlow = flowTable.getFlow(CLIENT, SERVER, START);
+        flowTable.getFlow(OTHER_CLIENT, SERVER, START.plusSeconds(20));
+
+        assertThat(flowTable.getFlow(OTHER_CLIENT, SERVER, START.plusSeconds(31))).isNotNull();
+        assertThat(flowTable.getFlowCount()).isEqualTo(1);
+        assertThat(flowTable.getFlow(CLIENT, SERVER, START.plusSeconds(31))).isNotSameAs(idleFlow);
+    }
+
+    @Test
+    public void expiredFlows_shouldBePassedToTheHandler() {
+        final List<TcpFlow> expiredFlows = new ArrayList<>();
+        final TcpFlowTable flowTable = new TcpFlowTable(Duration.ofSeconds(30), Long.MAX_VALUE, expiredFlows::add);
+        final TcpFlow idleFlow = flowTable.getFlow(CLIENT, SERVER, START);
+        final TcpFlow activeFlow = flowTable.getFlow(OTHER_CLIENT, SERVER, START.plusSeconds(20));
+
+        flowTable.getFlow(OTHER_CLIENT, SERVER, START.plusSeconds(31));
+        assertThat(expiredFlows).containsExactly(idleFlow);
+
+        flowTable.expireAll();
+        assertThat(expiredFlows).containsExactly(idleFlow, activeFlow);
+        assertThat(flowTable.getFlowCount()).isZero();
+    }
+
+    @Test
+    public void exceedingTheByteLimit_shouldDropLeastRecentlyActiveFlows() {
+        final TcpFlowTable flowTable = new TcpFlowTable(Duration.ofMinutes(5), 15_000);
+        final TcpFlow first = flowTable.getFlow(CLIENT, SERVER, START);
+        first.getStreamFrom(CLIENT).addSegment(0, new byte[10_000]);
+        flowTable.accountHeldBytes(first);
+        final TcpFlow second = flowTable.getFlow(OTHER_CLIENT, SERVER, START.plusSeconds(1));
+        second.getStreamFrom(OTHER_CLIENT).addSegment(0, new byte[10_000]);
+        flowTable.accountHeldBytes(second);
+
+        assertThat(flowTable.getFlowCount()).isEqualTo(1);
+        assertThat(flowTable.getHeldBytes()).isEqualTo(10_000);
+        assertThat(flowTable.getDroppedFlows()).isEqualTo(1);
+        assertThat(flowTable.getFlow(OTHER_CLIENT, SERVER, START.plusSeconds(2))).isSameAs(second);
+
+        second.getStreamFrom(OTHER_CLIENT).consume(10_000);
+        flowTable.accountHeldBytes(second);
+        assertThat(flowTable.getHeldBytes()).isEqualTo(4096);
+    }
+
+    private static byte[] tcpPacket(byte[] sourceAddress, int sourcePort, byte[] destinationAddress,
+        int destinationPort) {
+        final ByteBuffer packet = ByteBuffer.allocate(40);
+        packet.put((byte) 0x45).put((byte) 0).putShort((short) 40).putInt(0).put((byte) 64).put((byte) 6)
+            .putShort((short) 0).put(sourceAddress).put(destinationAddress);
+        packet.putShort((short) sourcePort).putShort((short) destinationPort).putLong(0)
+            .put((byte) 0x50).put((byte) 0x10).putShort((short) 1024).putInt(0);
+        return packet.array();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.capture;
+
+import de.gematik.rbellogger.captures.TcpPacketView;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.pcap4j.core.PcapHandle;
+import org.pcap4j.core.Pcaps;
+import org.pcap4j.packet.IpV4Packet;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.TcpPacket;
+import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TcpPacketViewTest {
+
+    private static final byte[] PAYLOAD = "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    public void vlanTaggedIpV4Frame_shouldBeDecoded() {
+        final ByteBuffer frame = ByteBuffer.allocate(100);
+        frame.put(new byte[12]).putShort((short) 0x8100).putShort((short) 7).putShort((short) 0x0800);
+        putIpV4Header(frame, 20 + 20 + PAYLOAD.length, 0);
+        putTcpHeader(frame, 0x12);
+        frame.put(PAYLOAD);
+        frame.put(new byte[]{0, 0, 0, 0});
+        final TcpPacketView view = new TcpPacketView();
+
+        assertThat(view.wrap(frame.array(), frame.position(), DataLinkType.EN10MB)).isTrue();
+        assertThat(view.getSourceAddress()).isEqualTo("10.0.0.2");
+        assertThat(view.getDestinationAddress()).isEqualTo("192.168.1.200");
+        assertThat(view.getSourcePort()).isEqualTo(51000);
+        assertThat(view.getDestinationPort()).isEqualTo(8080);
+        assertThat(view.getSequenceNumber()).isEqualTo(0xF0000001L);
+        assertThat(view.isSyn()).isTrue();
+        assertThat(view.isAck()).isTrue();
+        assertThat(view.isFin()).isFalse();
+        assertThat(view.isRst()).isFalse();
+        assertThat(view.copyPayload()).isEqualTo(PAYLOAD);
+    }
+
+    @Test
+    public void ipV6PacketWithExtensionHeader_shouldBeDecoded() {
+        final ByteBuffer packet = ByteBuffer.allocate(120);
+        packet.putInt(0x60000000).putShort((short) (8 + 20 + PAYLOAD.length)).put((byte) 0).put((byte) 64);
+        packet.put(new byte[15]).put((byte) 1);
+        packet.put(new byte[]{(byte) 0xfe, (byte) 0x80}).put(new byte[13]).put((byte) 2);
+        packet.put((byte) 6).put((byte) 0).put(new byte[6]);
+        putTcpHeader(packet, 0x11);
+        packet.put(PAYLOAD);
+        final TcpPacketView view = new TcpPacketView();
+
+        assertThat(view.wrapIpPacket(packet.array(), 0, packet.position())).isTrue();
+        assertThat(view.getSourceAddress()).isEqualTo("0:0:0:0:0:0:0:1");
+        assertThat(view.getDestinationAddress()).isEqualTo("fe80:0:0:0:0:0:0:2");
+        assertThat(view.isFin()).isTrue();
+        assertThat(view.copyPayload()).isEqualTo(PAYLOAD);
+    }
+
+    @Test
+    public void fragmentsAndTruncatedPackets_shouldNotBeDecoded() {
+        final ByteBuffer fragment = ByteBuffer.allocate(60);
+        putIpV4Header(fragment, 40, 0x2000);
+        putTcpHeader(fragment, 0x10);
+        final ByteBuffer truncated = ByteBuffer.allocate(60);
+        putIpV4Header(truncated, 40, 0);
+        putTcpHeader(truncated, 0x10);
+        final TcpPacketView view = new TcpPacketView();
+
+        assertThat(view.wrapIpPacket(fragment.array(), 0, fragment.position())).isFalse();
+        assertThat(view.wrapIpPacket(truncated.array(), 0, truncated.position() - 1)).isFalse();
+        assertThat(view.wrapIpPacket(truncated.array(), 0, truncated.position())).isTrue();
+        assertThat(view.getPayloadLength()).isZero();
+    }
+
+    @Test
+    public void bothDirections_shouldHaveTheSameConnectionHash() {
+        final ByteBuffer request = ByteBuffer.allocate(40);
+        putIpV4Header(request, 40, 0);
+        putTcpHeader(request, 0x10);
+        final byte[] response = request.array().clone();
+        System.arraycopy(request.array(), 12, response, 16, 4);
+        System.arraycopy(request.array(), 16, response, 12, 4);
+        System.arraycopy(request.array(), 20, response, 22, 2);
+        System.arraycopy(request.array(), 22, response, 20, 2);
+        final TcpPacketView view = new TcpPacketView();
+
+        view.wrapIpPacket(request.array(), 0, 40);
+        final int requestHash = view.getConnectionHash();
+        view.wrapIpPacket(response, 0, 40);
+
+        assertThat(view.getSourcePort()).isEqualTo(8080);
+        assertThat(view.getConnectionHash()).isEqualTo(requestHash);
+    }
+
+    @Test
+    public void capturedPackets_shouldBeDecodedLikePcap4jDoes() throws Exception {
+        final PcapHandle handle = Pcaps.openOffline("src/test/resources/ssoTokenFlow.pcap");
+        final TcpPacketView view = new TcpPacketView();
+        int tcpPackets = 0;
+        try {
+            while (true) {
+                final byte[] raw = handle.getNextRawPacketEx();
+                final Packet packet = PacketFactories.getFactory(Packet.class, DataLinkType.class)
+                    .newInstance(raw, 0, raw.length, handle.getDlt());
+                final TcpPacket tcpPacket = packet.get(TcpPacket.class);
+                assertThat(view.wrap(raw, raw.length, handle.getDlt())).isEqualTo(tcpPacket != null);
+                if (tcpPacket == null) {
+                    continue;
+                }
+                tcpPackets++;
+                final IpV4Packet ipPacket = packet.get(IpV4Packet.class);
+                assertThat(view.getSourceAddress()).isEqualTo(ipPacket.getHeader().getSrcAddr().getHostAddress());
+                assertThat(view.getDestinationPort()).isEqualTo(tcpPacket.getHeader().getDstPort().valueAsInt());
+                assertThat(view.getSequenceNumber()).isEqualTo(tcpPacket.getHeader().getSequenceNumberAsLong());
+                assertThat(view.isSyn()).isEqualTo(tcpPacket.getHeader().getSyn());
+                assertThat(view.copyPayload()).isEqualTo(tcpPacket.getPayload() == null
+                    ? new byte[0] : tcpPacket.getPayload().getRawData());
+            }
+        } catch (EOFException e) {
+            // end of capture
+        } finally {
+            handle.close();
+        }
+        assertThat(tcpPackets).isPositive();
+    }
+
+    private static void putIpV4Header(ByteBuffer buffer, int totalLength, int flagsAndFragmentOffset) {
+        buffer.put((byte) 0x45).put((byte) 0).putShort((short) totalLength);
+        buffer.putShort((short) 1).putShort((short) flagsAndFragmentOffset);
+        buffer.put((byte) 64).put((byte) 6).putShort((short) 0);
+        buffer.put(new byte[]{10, 0, 0, 2}).put(new byte[]{(byte) 192, (byte) 168, 1, (byte) 200});
+    }
+
+    private static void putTcpHeader(ByteBuffer buffer, int flags) {
+        buffer.putShort((short) 51000).putShort((short) 8080).putInt(0xF0000001).putInt(0);
+        buffer.put((byte) 0x50).put((byte) flags).putShort((short) 1024).putInt(0);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.capture;
+
+import de.gematik.rbellogger.captures.TcpStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TcpStreamTest {
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void segmentsOutOfOrder_shouldBeAppendedOnceTheGapIsFilled() {
+        final TcpStream stream = new TcpStream();
+        stream.synchronize(1000);
+
+        assertThat(stream.addSegment(1006, bytes("world"))).isFalse();
+        assertThat(stream.getBufferedLength()).isZero();
+        assertThat(stream.getPendingSegmentCount()).isEqualTo(1);
+
+        assertThat(stream.addSegment(1001, bytes("hello"))).isTrue();
+        assertThat(new String(stream.getBufferedBytes(), StandardCharsets.US_ASCII)).isEqualTo("helloworld");
+        assertThat(stream.getPendingSegmentCount()).isZero();
+    }
+
+    @Test
+    public void retransmittedAndOverlappingSegments_shouldOnlyContributeNewBytes() {
+        final TcpStream stream = new TcpStream();
+        stream.addSegment(50, bytes("abc"));
+        assertThat(stream.addSegment(50, bytes("abc"))).isFalse();
+        assertThat(stream.addSegment(51, bytes("bcdef"))).isTrue();
+        stream.addSegment(60, bytes("xyz"));
+        stream.addSegment(60, bytes("x"));
+        stream.addSegment(56, bytes("ghijxy"));
+
+        assertThat(new String(stream.getBufferedBytes(), StandardCharsets.US_ASCII)).isEqualTo("abcdefghijxyz");
+        assertThat(stream.getDuplicateBytes()).isEqualTo(3 + 2 + 1 + 2);
+    }
+
+    @Test
+    public void sequenceNumberWrap_shouldContinueTheStream() {
+        final TcpStream stream = new TcpStream();
+        stream.addSegment(0xFFFFFFFEL, bytes("ab"));
+        stream.addSegment(1, bytes("d"));
+        stream.addSegment(0, bytes("c"));
+
+        assertThat(new String(stream.consume(3), StandardCharsets.US_ASCII)).isEqualTo("abc");
+        assertThat(new String(stream.getBufferedBytes(), StandardCharsets.US_ASCII)).isEqualTo("d");
+    }
+
+    @Test
+    public void heldBackSliceOfReusedArray_shouldBeCopied() {
+        final TcpStream stream = new TcpStream();
+        stream.synchronize(0);
+        final byte[] packet = bytes("__world__");
+
+        stream.addSegment(6, packet, 2, 5);
+        packet[2] = 'X';
+        stream.addSegment(1, bytes("hello"), 0, 5);
+
+        assertThat(new String(stream.getBufferedBytes(), StandardCharsets.US_ASCII)).isEqualTo("helloworld");
+    }
+
+    @Test
+    public void consumedBytes_shouldBeReleasedOnceTheBufferRunsEmpty() {
+        final TcpStream stream = new TcpStream();
+        assertThat(stream.getHeldBytes()).isZero();
+        final StringBuilder sent = new StringBuilder();
+        final StringBuilder consumed = new StringBuilder();
+        long sequenceNumber = 1;
+        for (int i = 0; i < 1_000; i++) {
+            stream.addSegment(sequenceNumber, bytes("message" + (i % 10)));
+            sent.append("message").append(i % 10);
+            sequenceNumber += 8;
+            consumed.append(new String(stream.consume(4), StandardCharsets.US_ASCII));
+        }
+        assertThat(stream.getBufferedLength()).isEqualTo(4_000);
+        assertThat(consumed.toString()).isEqualTo(sent.substring(0, 4_000));
+        assertThat(new String(stream.getBufferedBytes(), StandardCharsets.US_ASCII)).isEqualTo(sent.substring(4_000));
+
+        stream.addSegment(sequenceNumber, new byte[2 * 1024 * 1024]);
+        assertThat(stream.getHeldBytes()).isGreaterThanOrEqualTo(2 * 1024 * 1024);
+        assertThat(stream.getBufferedByte(0)).isEqualTo((byte) sent.charAt(4_000));
+        stream.consume(stream.getBufferedLength());
+
+        assertThat(stream.getHeldBytes()).isEqualTo(4096);
+    }
+}
@@ -17,13 +17,19 @@
 package de.gematik.rbellogger.converter;
 
 import de.gematik.rbellogger.RbelLogger;
+import de.gematik.rbellogger.configuration.RbelConfiguration;
 import de.gematik.rbellogger.data.RbelElement;
 import de.gematik.rbellogger.data.RbelHostname;
 import de.gematik.rbellogger.data.facet.*;
 import de.gematik.rbellogger.exceptions.RbelConversionException;
 import de.gematik.rbellogger.renderer.RbelHtmlRenderer;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
 
@@ -61,6 +67,29 @@ public class RbelConverterTest {
             .contains("this exception should be ignored", this.getClass().getSimpleName());
     }
 
+    @Test
+    public void pluginWithUnmetPrecondition_shouldNotBeInvoked() {
+        var rbelLogger = RbelLogger.build();
+        AtomicInteger invocations = new AtomicInteger();
+        rbelLogger.getRbelConverter().addConverter(new RbelConverterPlugin() {
+            @Override
+            public boolean isApplicable(RbelContentSniffer content) {
+                return content.startsWith("<!DOCTYPE");
+            }
+
+            @Override
+            public void consumeElement(RbelElement rbelElement, RbelConverter converter) {
+                invocations.incrementAndGet();
+            }
+        });
+
+        rbelLogger.getRbelConverter().convertElement("{\"foo\":\"bar\"}", null);
+        assertThat(invocations).hasValue(0);
+
+        rbelLogger.getRbelConverter().convertElement("<!DOCTYPE html>", null);
+        assertThat(invocations).hasValue(1);
+    }
+
     @Test
     public void parseMessage_shouldFailBecauseContentIsNull() {
         byte[] content = null;
@@ -69,6 +98,35 @@ public class RbelConverterTest {
         });
     }
 
+    @Test
+    public void parseMessageAsync_shouldPublishInArrivalOrder() {
+        var rbelLogger = RbelLogger.build(RbelConfiguration.builder()
+            .conversionThreads(4)
+            .conversionQueueSize(8)
+            .build());
+        List<CompletableFuture<RbelElement>> results = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+            final String message = i % 2 == 0
+                ? "GET /foo?id=" + i + " HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                : "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n";
+            results.add(rbelLogger.getRbelConverter()
+                .parseMessageAsync(message.getBytes(), null, null, Optional.empty()));
+        }
+        rbelLogger.getRbelConverter().waitForAllPendingMessages();
+
+        assertThat(rbelLogger.getMessageHistory())
+            .containsExactlyElementsOf(results.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+        for (int i = 0; i < 50; i++) {
+            final RbelElement message = rbelLogger.getMessageHistory().get(i);
+            assertThat(message.getFacetOrFail(RbelTcpIpMessageFacet.class).getSequenceNumber()).isEqualTo(i);
+            if (i % 2 == 1) {
+                assertThat(message.getFacetOrFail(RbelHttpResponseFacet.class).getRequest())
+                    .isSameAs(rbelLogger.getMessageHistory().get(i - 1));
+            }
+        }
+    }
+
     @Test
     public void simulateRaceCondition_PairingShouldBeConserved() {
         RbelElement pair1A = new RbelElement("foo".getBytes(), null);
@@ -112,4 +170,58 @@ public class RbelConverterTest {
         assertThat(pair1B.getFacetOrFail(RbelHttpResponseFacet.class).getRequest()).isEqualTo(pair1A);
         assertThat(pair2B.getFacetOrFail(RbelHttpResponseFacet.class).getRequest()).isEqualTo(pair2A);
     }
+
+    @Test
+    public void interleavedConnections_shouldPairResponsesPerConnection() {
+        var rbelLogger = RbelLogger.build();
+        var converter = rbelLogger.getRbelConverter();
+        var client1 = new RbelHostname("client1", 1001);
+        var client2 = new RbelHostname("client2", 1002);
+        var server = new RbelHostname("server", 443);
+
+        var request1A = converter.parseMessage("GET /1a HTTP/1.1\r\n\r\n".getBytes(), client1, server, Optional.empty());
+        var request2 = converter.parseMessage("GET /2 HTTP/1.1\r\n\r\n".getBytes(), client2, server, Optional.empty());
+        var request1B = converter.parseMessage("GET /1b HTTP/1.1\r\n\r\n".getBytes(), client1, server, Optional.empty());
+        var response1A = converter.parseMessage("HTTP/1.1 200 OK\r\n\r\n".getBytes(), server, client1, Optional.empty());
+        var response2 = converter.parseMessage("HTTP/1.1 200 OK\r\n\r\n".getBytes(), server, client2, Optional.empty());
+        var response1B = converter.parseMessage("HTTP/1.1 200 OK\r\n\r\n".getBytes(), server, client1, Optional.empty());
+
+        assertThat(response1A.getFacetOrFail(RbelHttpResponseFacet.class).getRequest()).isSameAs(request1A);
+        assertThat(response2.getFacetOrFail(RbelHttpResponseFacet.class).getRequest()).isSameAs(request2);
+        assertThat(response1B.getFacetOrFail(RbelHttpResponseFacet.class).getRequest()).isSameAs(request1B);
+        assertThat(request1B.getFacetOrFail(RbelHttpRequestFacet.class).getResponse()).isSameAs(response1B);
+    }
+
+    @Test
+    public void prePairedResponses_shouldCloseTheirRequest() {
+        var converter = RbelLogger.build().getRbelConverter();
+        var client = new RbelHostname("client", 1001);
+        var server = new RbelHostname("server", 443);
+
+        var request1 = converter.parseMessage("GET /1 HTTP/1.1\r\n\r\n".getBytes(), client, server, Optional.empty());
+        var request2 = converter.parseMessage("GET /2 HTTP/1.1\r\n\r\n".getBytes(), client, server, Optional.empty());
+        final RbelElement prePairedResponse = converter.convertElement("HTTP/1.1 200 OK\r\n\r\n".getBytes(), null);
+        prePairedResponse.addOrReplaceFacet(prePairedResponse.getFacetOrFail(RbelHttpResponseFacet.class).toBuilder()
+            .request(request1)
+            .build());
+        converter.doMessagePostConversion(prePairedResponse, server, client, Optional.empty());
+        var response2 = converter.parseMessage("HTTP/1.1 200 OK\r\n\r\n".getBytes(), server, client, Optional.empty());
+
+        assertThat(prePairedResponse.getFacetOrFail(RbelHttpResponseFacet.class).getRequest()).isSameAs(request1);
+        assertThat(response2.getFacetOrFail(RbelHttpResponseFacet.class).getRequest()).isSameAs(request2);
+        assertThat(request2.getFacetOrFail(RbelHttpRequestFacet.class).getResponse()).isSameAs(response2);
+    }
+
+    @Test
+    public void messagesWithoutHostnames_shouldBePairedWithTheLastRequest() {
+        var converter = RbelLogger.build().getRbelConverter();
+
+        converter.parseMessage("GET /unanswered HTTP/1.1\r\n\r\n".getBytes(), null, null, Optional.empty());
+        var request = converter.parseMessage("GET /answered HTTP/1.1\r\n\r\n".getBytes(), null, null,
+            Optional.empty());
+        var response = converter.parseMessage("HTTP/1.1 200 OK\r\n\r\n".getBytes(), null, null, Optional.empty());
+
+        assertThat(response.getFacetOrFail(RbelHttpResponseFacet.class).getRequest()).isSameAs(request);
+        assertThat(request.getFacetOrFail(RbelHttpRequestFacet.class).getResponse()).isSameAs(response);
+    }
 }
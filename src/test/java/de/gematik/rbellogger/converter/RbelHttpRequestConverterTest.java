@@ -85,4 +85,19 @@ public class RbelHttpRequestConverterTest {
 
         assertThat(rbelElement.hasFacet(RbelHttpRequestFacet.class)).isFalse();
     }
+
+    @Test
+    public void requestBody_shouldBeViewOnMessageContent() {
+        final RbelElement rbelElement = new RbelElement(("POST /foo HTTP/1.1\r\n"
+                + "Content-Type: application/json\r\n\r\n"
+                + "{\"foo\":\"bar\"}").getBytes(StandardCharsets.UTF_8), null);
+
+        rbelConverter.convertElement(rbelElement);
+
+        final RbelElement body = rbelElement.findElement("$.body").get();
+        assertThat(body.getRawStringContent()).isEqualTo("{\"foo\":\"bar\"}");
+        assertThat(body.getSize()).isEqualTo(13);
+        assertThat(body.getContent().startsWith("{".getBytes(StandardCharsets.UTF_8))).isTrue();
+        assertThat(body.findElement("$.foo").get().getRawStringContent()).isEqualTo("bar");
+    }
 }
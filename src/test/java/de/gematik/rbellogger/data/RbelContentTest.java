@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class RbelContentTest {
+
+    @Test
+    public void nestedSubContent_shouldAddressOriginalBuffer() {
+        final byte[] buffer = "0123456789".getBytes(StandardCharsets.US_ASCII);
+        final RbelContent slice = RbelContent.of(buffer).subContent(2, 9).subContent(1, 4);
+
+        assertThat(slice.size()).isEqualTo(3);
+        assertThat(slice.get(0)).isEqualTo((byte) '3');
+        assertThat(slice.toString(StandardCharsets.US_ASCII)).isEqualTo("345");
+        assertThat(slice.toByteArray()).containsExactly('3', '4', '5');
+        assertThat(slice.indexOf("5".getBytes(StandardCharsets.US_ASCII), 0)).isEqualTo(2);
+        assertThat(slice.indexOf("6".getBytes(StandardCharsets.US_ASCII), 0)).isEqualTo(-1);
+    }
+
+    @Test
+    public void fullView_shouldNotCopyBuffer() {
+        final byte[] buffer = "foobar".getBytes(StandardCharsets.US_ASCII);
+
+        assertThat(RbelContent.of(buffer).toByteArray()).isSameAs(buffer);
+        assertThat(RbelContent.of(buffer, 3, 6).startsWith("bar".getBytes(StandardCharsets.US_ASCII))).isTrue();
+    }
+
+    @Test
+    public void rawContentOfPartialView_shouldBeCopiedOnlyOnce() {
+        final RbelElement parent = new RbelElement("foobar".getBytes(StandardCharsets.US_ASCII), null);
+        final RbelElement child = RbelElement.fromContent(parent.getContent().subContent(3, 6), parent);
+
+        assertThat(child.getRawContent()).containsExactly('b', 'a', 'r');
+        assertThat(child.getRawContent()).isSameAs(child.getRawContent());
+    }
+
+    @Test
+    public void rangeOutsideOfView_shouldBeRejected() {
+        final RbelContent content = RbelContent.of(new byte[5]).subContent(1, 3);
+
+        assertThatExceptionOfType(IndexOutOfBoundsException.class)
+            .isThrownBy(() -> content.subContent(0, 3));
+        assertThatExceptionOfType(IndexOutOfBoundsException.class)
+            .isThrownBy(() -> content.get(2));
+    }
+}
@@ -16,9 +16,21 @@
 
 package de.gematik.rbellogger.data;
 
+import de.gematik.rbellogger.RbelLogger;
+import de.gematik.rbellogger.RbelOptions;
+import de.gematik.rbellogger.data.facet.RbelFacet;
+import de.gematik.rbellogger.data.facet.RbelJsonFacet;
+import de.gematik.rbellogger.data.facet.RbelMapFacet;
+import de.gematik.rbellogger.data.facet.RbelNestedFacet;
+import de.gematik.rbellogger.data.facet.RbelNoteFacet;
+import de.gematik.rbellogger.data.facet.RbelValueFacet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class RbelElementTest {
 
@@ -42,4 +54,180 @@ public class RbelElementTest {
         assertThat(originalElement.getUuid())
             .isEqualTo(renamedElement.getUuid());
     }
+
+    @Test
+    public void facetLookup_shouldMatchExactTypesAndSupertypes() {
+        RbelElement element = new RbelElement("fo".getBytes(), null);
+        assertThat(element.hasFacet(RbelFacet.class)).isFalse();
+
+        final RbelNoteFacet note = new RbelNoteFacet("note");
+        element.addFacet(note);
+        element.addFacet(new RbelValueFacet<>("value"));
+
+        assertThat(element.getFacet(RbelNoteFacet.class)).containsSame(note);
+        assertThat(element.getFacet(RbelFacet.class)).containsSame(note);
+        assertThat(element.getFacet(Object.class)).containsSame(note);
+        assertThat(element.hasFacet(RbelValueFacet.class)).isTrue();
+        assertThat(element.hasFacet(RbelJsonFacet.class)).isFalse();
+    }
+
+    @Test
+    public void addOrReplaceFacet_shouldReplaceFacetOfSameType() {
+        RbelElement element = new RbelElement("fo".getBytes(), null);
+        element.addFacet(new RbelNoteFacet("first"));
+        element.addFacet(new RbelValueFacet<>("value"));
+
+        final RbelNoteFacet replacement = new RbelNoteFacet("second");
+        element.addOrReplaceFacet(replacement);
+
+        assertThat(element.getFacets()).hasSize(2);
+        assertThat(element.getFacet(RbelNoteFacet.class)).containsSame(replacement);
+        assertThat(element.hasFacet(RbelValueFacet.class)).isTrue();
+    }
+
+    @Test
+    public void defaultIdStrategy_shouldUseUuidsOnlyForMessages() {
+        RbelElement message = new RbelElement("fo".getBytes(), null);
+        RbelElement firstChild = new RbelElement("f".getBytes(), message);
+        RbelElement secondChild = new RbelElement("o".getBytes(), message);
+
+        assertThat(UUID.fromString(message.getUuid()).toString()).isEqualTo(message.getUuid());
+        assertThat(firstChild.getUuid())
+            .isEqualTo(firstChild.getUuid())
+            .isNotEqualTo(secondChild.getUuid())
+            .isNotEqualTo(message.getUuid());
+        assertThat(new RbelElement("fo".getBytes(), message).toBuilder().uuid("given").build().getUuid())
+            .isEqualTo("given");
+    }
+
+    @Test
+    public void findNodePath_shouldFollowKeysInParents() {
+        final RbelElement json = RbelLogger.build().getRbelConverter()
+            .convertElement("{\"foo\": {\"bar\": [1, 2]}, \"baz\": 3}", null);
+        final RbelElement second = json.findElement("$.foo.bar.1").get();
+
+        assertThat(second.findNodePath()).isEqualTo("foo.bar.1.content");
+        assertThat(second.getParentNode().getKey()).contains("1");
+        assertThat(json.findElement("$.baz").get().getParentNode().findKeyInParentElement()).contains("baz");
+        assertThat(json.getKey()).isEmpty();
+    }
+
+    @Test
+    public void replacedFacet_shouldUpdateKeyInParent() {
+        RbelElement parent = new RbelElement("fo".getBytes(), null);
+        RbelElement child = new RbelElement("f".getBytes(), parent);
+        parent.addFacet(new RbelMapFacet(new RbelMultiMap().with("first", child)));
+        assertThat(child.getKey()).contains("first");
+
+        parent.addOrReplaceFacet(new RbelMapFacet(new RbelMultiMap().with("second", child)));
+        assertThat(child.getKey()).contains("second");
+        assertThat(child.findNodePath()).isEqualTo("second");
+    }
+
+    @Test
+    public void childNodes_shouldBeCachedUntilFacetsOrTheirMapsChange() {
+        RbelElement parent = new RbelElement("fo".getBytes(), null);
+        RbelElement first = new RbelElement("f".getBytes(), parent);
+        final RbelMultiMap childMap = new RbelMultiMap().with("first", first);
+        parent.addFacet(new RbelMapFacet(childMap));
+
+        assertThat(parent.getChildNodes()).containsExactly(first);
+        assertThat(parent.getChildNodes()).isSameAs(parent.getChildNodes());
+        assertThat(parent.getChildNodesWithKey()).isSameAs(parent.getChildNodesWithKey());
+        assertThatThrownBy(() -> parent.getChildNodesWithKey().put("foo", first))
+            .isInstanceOf(UnsupportedOperationException.class);
+
+        RbelElement second = new RbelElement("o".getBytes(), parent);
+        childMap.put("second", second);
+        assertThat(parent.getChildNodes()).containsExactly(first, second);
+
+        RbelElement nested = new RbelElement("o".getBytes(), parent);
+        parent.addFacet(new RbelNestedFacet(nested));
+        assertThat(parent.getChildNodesWithKey().getAll("content")).containsExactly(nested);
+    }
+
+    @Test
+    public void traversal_shouldVisitDepthFirstAndHonourSkippedSubtrees() {
+        RbelElement root = new RbelElement("r".getBytes(), null);
+        RbelElement a = new RbelElement("a".getBytes(), root);
+        RbelElement a1 = new RbelElement("a1".getBytes(), a);
+        RbelElement b = new RbelElement("b".getBytes(), root);
+        RbelElement b1 = new RbelElement("b1".getBytes(), b);
+        root.addFacet(new RbelMapFacet(new RbelMultiMap().with("a", a).with("b", b)));
+        a.addFacet(new RbelNestedFacet(a1));
+        b.addFacet(new RbelNestedFacet(b1));
+
+        final List<String> events = new ArrayList<>();
+        root.traverse(new RbelElementVisitor() {
+            @Override
+            public Action enter(RbelElement element, int depth) {
+                events.add("+" + element.getRawStringContent() + depth);
+                return element == a ? Action.SKIP_SUBTREE : Action.CONTINUE;
+            }
+
+            @Override
+            public void leave(RbelElement element, int depth) {
+                events.add("-" + element.getRawStringContent() + depth);
+            }
+        });
+        assertThat(events).containsExactly("+r0", "+a1", "-a1", "+b1", "+b12", "-b12", "-b1", "-r0");
+
+        final List<String> iterated = new ArrayList<>();
+        for (RbelElementTreeIterator iterator = root.treeIterator(); iterator.hasNext(); ) {
+            final RbelElement element = iterator.next();
+            iterated.add(element.getRawStringContent() + iterator.getDepth());
+            if (element == b) {
+                iterator.skipSubtree();
+            }
+        }
+        assertThat(iterated).containsExactly("r0", "a1", "a12", "b1");
+    }
+
+    @Test
+    public void traversalOfDeepTrees_shouldNotOverflowTheStack() {
+        RbelElement root = new RbelElement("r".getBytes(), null);
+        RbelElement current = root;
+        for (int i = 0; i < 20_000; i++) {
+            RbelElement child = new RbelElement("c".getBytes(), current);
+            current.addFacet(new RbelNestedFacet(child));
+            current = child;
+        }
+        current.addFacet(new RbelNoteFacet("leaf"));
+        final RbelElement leaf = current;
+
+        final int[] maximumDepth = {0};
+        root.traverse((element, depth) -> {
+            maximumDepth[0] = Math.max(maximumDepth[0], depth);
+            return element == leaf ? RbelElementVisitor.Action.TERMINATE : RbelElementVisitor.Action.CONTINUE;
+        });
+        assertThat(maximumDepth[0]).isEqualTo(20_000);
+        assertThat(root.findDescendantsWithFacet(RbelNoteFacet.class)).containsExactly(leaf);
+        RbelOptions.deactivateRbelPathIndex();
+        try {
+            assertThat(root.findDescendantsWithFacet(RbelNoteFacet.class)).containsExactly(leaf);
+        } finally {
+            RbelOptions.activateRbelPathIndex();
+        }
+    }
+
+    @Test
+    public void skipSubtreeAfterHasNext_shouldSkipTheChildren() {
+        RbelElement root = new RbelElement("r".getBytes(), null);
+        RbelElement a = new RbelElement("a".getBytes(), root);
+        RbelElement a1 = new RbelElement("a1".getBytes(), a);
+        RbelElement b = new RbelElement("b".getBytes(), root);
+        root.addFacet(new RbelMapFacet(new RbelMultiMap().with("a", a).with("b", b)));
+        a.addFacet(new RbelNestedFacet(a1));
+
+        final List<String> iterated = new ArrayList<>();
+        final RbelElementTreeIterator iterator = root.treeIterator();
+        while (iterator.hasNext()) {
+            final RbelElement element = iterator.next();
+            iterated.add(element.getRawStringContent() + iterator.getDepth());
+            if (element == a && iterator.hasNext()) {
+                iterator.skipSubtree();
+            }
+        }
+        assertThat(iterated).containsExactly("r0", "a1", "b1");
+    }
 }
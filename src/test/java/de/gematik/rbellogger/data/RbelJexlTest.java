@@ -16,10 +16,15 @@
 
 package de.gematik.rbellogger.data;
 
+import com.google.common.cache.Cache;
 import de.gematik.rbellogger.RbelLogger;
 import de.gematik.rbellogger.RbelOptions;
+import de.gematik.rbellogger.converter.RbelJexlContext;
 import de.gematik.rbellogger.converter.RbelJexlExecutor;
+import de.gematik.rbellogger.converter.RbelJexlExecutor.JexlMessage;
+import de.gematik.rbellogger.data.facet.RbelNoteFacet;
 import java.time.ZonedDateTime;
+import org.apache.commons.lang3.reflect.FieldUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -149,4 +154,97 @@ public class RbelJexlTest {
             request, "Keep-[a-zA-Z0-9_]+Alive"))
             .isFalse();
     }
+
+    @Test
+    public void expressionsWithSameHashCode_shouldBeCachedSeparately() {
+        assertThat("'Aa' == 'Aa'".hashCode()).isEqualTo("'BB' == 'Aa'".hashCode());
+
+        assertThat(jexlExecutor.matchesAsJexlExpression(request, "'Aa' == 'Aa'")).isTrue();
+        assertThat(jexlExecutor.matchesAsJexlExpression(request, "'BB' == 'Aa'")).isFalse();
+
+        final long hitCount = RbelJexlExecutor.getExpressionCacheStats().hitCount();
+        assertThat(jexlExecutor.matchesAsJexlExpression(request, "'Aa' == 'Aa'")).isTrue();
+        assertThat(RbelJexlExecutor.getExpressionCacheStats().hitCount()).isGreaterThan(hitCount);
+    }
+
+    @Test
+    public void jexlContext_shouldResolveVariablesOnceAndOnlyOnAccess() {
+        final RbelJexlContext context = jexlExecutor.buildJexlContext(request, Optional.of("foo"));
+
+        assertThat(context.get("key")).isEqualTo("foo");
+        assertThat(context.get("message")).isSameAs(context.get("message"));
+        assertThat(context.get("request")).isSameAs(context.get("message"));
+        assertThat(context.has("charset")).isTrue();
+        assertThat(context.has("unknownVariable")).isFalse();
+        assertThat(jexlExecutor.buildJexlContext("plain string", Optional.empty()).has("charset")).isFalse();
+        assertThat(context.toMap())
+            .containsOnlyKeys(jexlExecutor.buildJexlMapContext(request, Optional.of("foo")).keySet());
+    }
+
+    @Test
+    public void jexlMessage_shouldBeSharedUntilFacetsOfMessageChange() {
+        final JexlMessage jexlMessage = (JexlMessage) jexlExecutor.buildJexlContext(request, Optional.empty())
+            .get("message");
+        final RbelElement header = request.findElement("$.header").get();
+
+        assertThat(messageOf(header).getHeaders()).isSameAs(jexlMessage.getHeaders());
+        assertThat(messageOf(header).getBody()).isSameAs(jexlMessage.getBody());
+        assertThat(messageOf(response).getHeaders()).isNotSameAs(jexlMessage.getHeaders());
+
+        request.addOrReplaceFacet(new RbelNoteFacet("changed"));
+        assertThat(messageOf(header))
+            .isEqualTo(jexlMessage)
+            .extracting(JexlMessage::getHeaders)
+            .isNotSameAs(jexlMessage.getHeaders());
+    }
+
+    @Test
+    public void rbelPathNamespace_shouldResolveSeveralPathsAgainstCurrentElement() throws IOException {
+        RbelElement request = RbelLogger.build().getRbelConverter().parseMessage(
+            readCurlFromFileWithCorrectedLineBreaks("src/test/resources/sampleMessages/getRequest.curl").getBytes(),
+            localhostWithPort(44444), localhostWithPort(5432), Optional.of(ZonedDateTime.now()));
+
+        assertThat(jexlExecutor.matchesAsJexlExpression(request,
+            "rbel:path('$.receiver.port') == '5432' && rbel:element('$.header') != null"))
+            .isTrue();
+        assertThat(jexlExecutor.matchesAsJexlExpression(request,
+            "$.receiver.port == '5432' && $.header.Host == 'localhost:8080'"))
+            .isTrue();
+
+        final long missCount = RbelJexlExecutor.getExpressionCacheStats().missCount();
+        assertThat(jexlExecutor.matchesAsJexlExpression(this.request,
+            "$.receiver.port == '5432' && $.header.Host == 'localhost:8080'"))
+            .isFalse();
+        assertThat(RbelJexlExecutor.getExpressionCacheStats().missCount()).isEqualTo(missCount);
+    }
+
+    @Test
+    public void cachedJexlMessage_shouldNotReferenceTheMessage() throws IllegalAccessException {
+        final RbelElement message = RbelLogger.build().getRbelConverter()
+            .parseMessage("POST /foo HTTP/1.1\r\nContent-Length: 3\r\n\r\nbar".getBytes(), null, null,
+                Optional.empty());
+        assertThat(jexlExecutor.matchesAsJexlExpression(message, "message.bodyAsString == 'bar'")).isTrue();
+
+        final Cache<RbelElement, ?> messageCache = (Cache<RbelElement, ?>) FieldUtils.readStaticField(
+            RbelJexlExecutor.class, "JEXL_MESSAGE_CACHE", true);
+        final JexlMessage cachedMessage = (JexlMessage) FieldUtils.readField(
+            messageCache.getIfPresent(message), "jexlMessage", true);
+        assertThat(cachedMessage.getMethod()).isEqualTo("POST");
+        assertThat(cachedMessage.getBody()).isNull();
+        assertThat(cachedMessage.getBodyAsString()).isNull();
+    }
+
+    @Test
+    public void bodyAsString_shouldOnlyBeDecodedWhenRead() throws IllegalAccessException {
+        final JexlMessage jexlMessage = messageOf(request);
+
+        assertThat(jexlMessage.getMethod()).isEqualTo("GET");
+        assertThat(FieldUtils.readField(jexlMessage, "bodyDecoded", true)).isEqualTo(false);
+        assertThat(jexlMessage.getBodyAsString()).isEqualTo(jexlMessage.getBody().getRawStringContent());
+        assertThat(FieldUtils.readField(jexlMessage, "bodyDecoded", true)).isEqualTo(true);
+    }
+
+    private JexlMessage messageOf(RbelElement element) {
+        return (JexlMessage) jexlExecutor.buildJexlContext(element, Optional.empty()).get("message");
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RbelMessageHistoryTest {
+
+    @Test
+    public void addAndEvictBeyondInitialCapacity_shouldKeepOrderAndTotalSize() {
+        final RbelMessageHistory history = new RbelMessageHistory();
+        final List<RbelElement> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final RbelElement message = message(i);
+            history.add(message);
+            expected.add(message);
+            if (i % 3 == 0) {
+                assertThat(history.removeFirst()).isSameAs(expected.remove(0));
+            }
+        }
+
+        assertThat(history).containsExactlyElementsOf(expected);
+        assertThat(history.get(history.size() - 1)).isSameAs(expected.get(expected.size() - 1));
+        assertThat(history.getTotalSize())
+            .isEqualTo(expected.stream().mapToLong(RbelElement::getSize).sum());
+    }
+
+    @Test
+    public void evictOldestWhileLargerThan_shouldNotifyRemovalListeners() {
+        final List<RbelElement> removed = new ArrayList<>();
+        final RbelMessageHistory history = new RbelMessageHistory()
+            .addRemovalListener(removed::add);
+        final RbelElement first = message(10);
+        final RbelElement second = message(10);
+        final RbelElement third = message(10);
+        history.addAll(List.of(first, second, third));
+
+        assertThat(history.evictOldestWhileLargerThan(25)).isEqualTo(1);
+        assertThat(removed).containsExactly(first);
+        assertThat(history).containsExactly(second, third);
+
+        history.clear();
+        assertThat(removed).containsExactly(first, second, third);
+        assertThat(history.getTotalSize()).isZero();
+    }
+
+    @Test
+    public void removeFromTheMiddle_shouldShiftRemainingMessages() {
+        final RbelMessageHistory history = new RbelMessageHistory();
+        final RbelElement first = message(1);
+        final RbelElement second = message(2);
+        final RbelElement third = message(3);
+        history.addAll(List.of(first, second, third));
+
+        assertThat(history.remove(1)).isSameAs(second);
+        history.add(1, second);
+        history.remove(first);
+
+        assertThat(history).containsExactly(second, third);
+        assertThat(history.getTotalSize()).isEqualTo(5);
+    }
+
+    private static RbelElement message(int size) {
+        return new RbelElement(new byte[size], null);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import de.gematik.rbellogger.RbelLogger;
+import de.gematik.rbellogger.configuration.RbelConfiguration;
+import de.gematik.rbellogger.data.facet.RbelTcpIpMessageFacet;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+import static de.gematik.rbellogger.TestUtils.readCurlFromFileWithCorrectedLineBreaks;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RbelMessageIndexTest {
+
+    private static final ZonedDateTime START = ZonedDateTime.parse("2022-02-01T10:00:00Z");
+    private static final RbelHostname CLIENT = new RbelHostname("client", 4711);
+    private static final RbelHostname SERVER = new RbelHostname("server", 80);
+
+    private static RbelLogger buildLoggerWithMessages(boolean activateMessageIndex) throws IOException {
+        final String request = readCurlFromFileWithCorrectedLineBreaks
+            ("src/test/resources/sampleMessages/getRequest.curl");
+        final String response = readCurlFromFileWithCorrectedLineBreaks
+            ("src/test/resources/sampleMessages/xmlMessage.curl");
+        final RbelLogger rbelLogger = RbelLogger.build(new RbelConfiguration()
+            .setActivateMessageIndex(activateMessageIndex));
+        for (int i = 0; i < 40; i++) {
+            final boolean isRequest = i % 2 == 0;
+            rbelLogger.getRbelConverter().parseMessage((isRequest ? request : response).getBytes(),
+                isRequest ? CLIENT : SERVER, isRequest ? SERVER : CLIENT, Optional.of(START.plusSeconds(i)));
+        }
+        return rbelLogger;
+    }
+
+    @Test
+    public void indexedQueries_shouldMatchScanOfTheHistory() throws IOException {
+        final RbelLogger indexedLogger = buildLoggerWithMessages(true);
+        final RbelLogger scanningLogger = buildLoggerWithMessages(false);
+        final List<RbelMessageQuery> queries = List.of(
+            RbelMessageQuery.builder().path("/auth/realms/idp/.well-known/openid-configuration").build(),
+            RbelMessageQuery.builder().sender("server").responseCode(200).newestFirst(true).limit(1).build(),
+            RbelMessageQuery.builder().method("GET")
+                .transmittedFrom(START.plusSeconds(10)).transmittedUntil(START.plusSeconds(19)).build(),
+            RbelMessageQuery.builder().host("client").request(false).minimumSequenceNumber(30L).build(),
+            RbelMessageQuery.builder().receiver("server").method("POST").build(),
+            RbelMessageQuery.builder().responseCode(200).maximumSequenceNumber(5L).newestFirst(true).build());
+
+        for (RbelMessageQuery query : queries) {
+            final List<Long> expected = sequenceNumbers(scanningLogger.findMessages(query));
+            assertThat(sequenceNumbers(indexedLogger.findMessages(query)))
+                .as(query.toString())
+                .isEqualTo(expected);
+        }
+        assertThat(sequenceNumbers(indexedLogger.findMessages(queries.get(1)))).containsExactly(39L);
+        assertThat(sequenceNumbers(indexedLogger.findMessages(queries.get(2))))
+            .containsExactly(10L, 12L, 14L, 16L, 18L);
+        assertThat(indexedLogger.findMessages(queries.get(4))).isEmpty();
+    }
+
+    @Test
+    public void evictedMessages_shouldBeRemovedFromTheIndex() throws IOException {
+        final RbelLogger rbelLogger = buildLoggerWithMessages(true);
+        final RbelMessageHistory history = rbelLogger.getRbelConverter().getMessageHistory();
+        assertThat(rbelLogger.getRbelConverter().getMessageIndex().size()).isEqualTo(40);
+
+        history.evictOldestWhileLargerThan(history.getTotalSize() - history.get(0).getSize());
+
+        assertThat(rbelLogger.getRbelConverter().getMessageIndex().size()).isEqualTo(39);
+        assertThat(sequenceNumbers(rbelLogger.findMessages(RbelMessageQuery.builder().method("GET").limit(1).build())))
+            .containsExactly(2L);
+
+        history.clear();
+        assertThat(rbelLogger.getRbelConverter().getMessageIndex().size()).isZero();
+    }
+
+    private static List<Long> sequenceNumbers(List<RbelElement> messages) {
+        return messages.stream()
+            .map(message -> message.getFacetOrFail(RbelTcpIpMessageFacet.class)
+                .getSequenceNumber())
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.data;
+
+import de.gematik.rbellogger.data.facet.RbelMapFacet;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RbelMultiMapTest {
+
+    @Test
+    public void wideMapWithDuplicateKeys_shouldKeepOrderAndAnswerLookups() {
+        final RbelMultiMap map = new RbelMultiMap();
+        final List<RbelElement> duplicates = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            map.put("key" + i, element("value" + i));
+            if (i % 10 == 0) {
+                final RbelElement duplicate = element("duplicate" + i);
+                duplicates.add(duplicate);
+                map.put("duplicate", duplicate);
+            }
+        }
+
+        assertThat(map.get("key42").getRawStringContent()).isEqualTo("value42");
+        assertThat(map.containsKey("key49")).isTrue();
+        assertThat(map.containsKey("key50")).isFalse();
+        assertThat(map.getAll("duplicate")).containsExactlyElementsOf(duplicates);
+
+        final RbelElement addedLater = element("addedLater");
+        map.put("duplicate", addedLater);
+        assertThat(map.get("duplicate")).isSameAs(duplicates.get(0));
+        assertThat(map.getAll("duplicate")).endsWith(addedLater);
+        assertThat(map.getValues().get(map.size() - 1).getValue()).isSameAs(addedLater);
+    }
+
+    @Test
+    public void removeAll_shouldRemoveAllEntriesWithKey() {
+        final RbelMultiMap map = new RbelMultiMap();
+        for (int i = 0; i < 20; i++) {
+            map.put(i % 2 == 0 ? "even" : "odd" + i, element(Integer.toString(i)));
+        }
+
+        assertThat(map.getAll("even")).hasSize(10);
+        assertThat(map.removeAll("even")).hasSize(10);
+        assertThat(map.containsKey("even")).isFalse();
+        assertThat(map.size()).isEqualTo(10);
+        assertThat(map.get("odd19").getRawStringContent()).isEqualTo("19");
+        assertThat(map.keySet()).hasSize(10);
+    }
+
+    @Test
+    public void rbelPathOnWideElement_shouldUseTheKeyIndexOfTheChildView() throws IllegalAccessException {
+        final RbelElement root = element("root");
+        final RbelMultiMap childMap = new RbelMultiMap();
+        final List<RbelElement> duplicates = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            childMap.put("key" + i, new RbelElement(("value" + i).getBytes(), root));
+            if (i % 5 == 0) {
+                final RbelElement duplicate = new RbelElement(("duplicate" + i).getBytes(), root);
+                duplicates.add(duplicate);
+                childMap.put("duplicate", duplicate);
+            }
+        }
+        root.addFacet(new RbelMapFacet(childMap));
+
+        assertThat(root.findRbelPathMembers("$.key12"))
+            .extracting(RbelElement::getRawStringContent)
+            .containsExactly("value12");
+        assertThat(root.findRbelPathMembers("$.duplicate")).containsExactlyElementsOf(duplicates);
+        assertThat(root.findRbelPathMembers("$.[?(key=='key19')]"))
+            .extracting(RbelElement::getRawStringContent)
+            .containsExactly("value19");
+        assertThat(root.findRbelPathMembers("$.key20")).isEmpty();
+        assertThat(FieldUtils.readField(root.getChildNodesWithKey(), "positionsByKey", true)).isNotNull();
+    }
+
+    private static RbelElement element(String content) {
+        return new RbelElement(content.getBytes(), null);
+    }
+}
@@ -18,6 +18,7 @@ package de.gematik.rbellogger.data;
 
 import static de.gematik.rbellogger.TestUtils.readCurlFromFileWithCorrectedLineBreaks;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 import ch.qos.logback.classic.Logger;
@@ -26,7 +27,10 @@ import ch.qos.logback.core.read.ListAppender;
 import de.gematik.rbellogger.RbelLogger;
 import de.gematik.rbellogger.RbelOptions;
 import de.gematik.rbellogger.data.facet.RbelHttpMessageFacet;
+import de.gematik.rbellogger.data.facet.RbelMapFacet;
+import de.gematik.rbellogger.exceptions.RbelPathException;
 import de.gematik.rbellogger.renderer.RbelHtmlRenderer;
+import de.gematik.rbellogger.util.RbelPath;
 import de.gematik.rbellogger.util.RbelPathExecutor;
 
 import java.io.File;
@@ -287,6 +291,91 @@ public class RbelPathTest {
             .containsAll(path1Results);
     }
 
+    @Test
+    public void compiledPath_shouldBeCachedAndTyped() {
+        final RbelPath rbelPath = RbelPath.compile("$..header[?(key=='Host')].[0]");
+
+        assertThat(RbelPath.compile("$..header[?(key=='Host')].[0]")).isSameAs(rbelPath);
+        assertThat(rbelPath.getSteps())
+            .extracting(RbelPath.Step::getSelectorType, RbelPath.Step::getFilterType)
+            .containsExactly(
+                tuple(RbelPath.SelectorType.RECURSIVE_DESCENT, RbelPath.FilterType.NONE),
+                tuple(RbelPath.SelectorType.KEY, RbelPath.FilterType.JEXL),
+                tuple(RbelPath.SelectorType.RECURSIVE_DESCENT, RbelPath.FilterType.INDEX));
+        assertThat(rbelPath.execute(jwtMessage))
+            .isEqualTo(jwtMessage.findRbelPathMembers("$..header[?(key=='Host')].[0]"));
+    }
+
+    @Test
+    public void malformedFilter_shouldBeRejectedWhenCompiling() {
+        assertThatThrownBy(() -> RbelPath.compile("$.header[?key=='Host']"))
+            .isInstanceOf(RbelPathException.class);
+        assertThatThrownBy(() -> RbelPath.compile("header"))
+            .isInstanceOf(RbelPathException.class);
+    }
+
+    @Test
+    public void streamedResults_shouldMatchEagerExecution() {
+        final List<String> paths = List.of("$..*", "$..nbf", "$.body.[*].nbf", "$..[?(key=='nbf')]",
+            "$.body.body.scopes_supported.[1]", "$..[0]", "$.body.body.sso_endpoint", "$.body..nbf",
+            "$..content", "$..body..content", "$.body.body..0", "$..header..Content-Type", "$..RegistryError",
+            "$..textTest.text", "$..text", "$..RegistryError..text");
+        for (RbelElement message : List.of(jwtMessage, xmlMessage)) {
+            for (String path : paths) {
+                final List<RbelElement> eagerResult = message.findRbelPathMembers(path);
+                RbelOptions.deactivateRbelPathDebugging();
+                try {
+                    assertThat(message.streamRbelPathMembers(path))
+                        .as(path)
+                        .containsExactlyElementsOf(eagerResult);
+                    assertThat(message.streamRbelPathMembers(path).findFirst())
+                        .isEqualTo(eagerResult.stream().findFirst());
+                } finally {
+                    RbelOptions.activateRbelPathDebugging();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void treeIndex_shouldFollowFacetsAddedLater() {
+        RbelOptions.deactivateRbelPathDebugging();
+        assertThat(jwtMessage.findRbelPathMembers("$..addedLater")).isEmpty();
+
+        final RbelElement body = jwtMessage.findElement("$.body.body").get();
+        final RbelElement addedElement = new RbelElement("foo".getBytes(), body);
+        body.addFacet(new RbelMapFacet(new RbelMultiMap().with("addedLater", addedElement)));
+
+        assertThat(jwtMessage.findRbelPathMembers("$..addedLater")).containsExactly(addedElement);
+        assertThat(jwtMessage.findDescendantsWithFacet(RbelMapFacet.class)).contains(body);
+        RbelOptions.deactivateRbelPathIndex();
+        try {
+            assertThat(jwtMessage.findRbelPathMembers("$..addedLater")).containsExactly(addedElement);
+            final List<RbelElement> scannedMaps = jwtMessage.findDescendantsWithFacet(RbelMapFacet.class);
+            RbelOptions.activateRbelPathIndex();
+            assertThat(jwtMessage.findDescendantsWithFacet(RbelMapFacet.class))
+                .containsExactlyElementsOf(scannedMaps);
+        } finally {
+            RbelOptions.activateRbelPathIndex();
+        }
+    }
+
+    @Test
+    public void treeIndex_shouldFollowChildMapsModifiedLater() {
+        RbelOptions.deactivateRbelPathDebugging();
+        final RbelElement body = jwtMessage.findElement("$.body.body").get();
+        final RbelMultiMap childMap = new RbelMultiMap();
+        body.addFacet(new RbelMapFacet(childMap));
+        assertThat(jwtMessage.findRbelPathMembers("$..putLater")).isEmpty();
+
+        final RbelElement addedElement = new RbelElement("foo".getBytes(), body);
+        childMap.put("putLater", addedElement);
+
+        assertThat(jwtMessage.findRbelPathMembers("$..putLater")).containsExactly(addedElement);
+        childMap.remove("putLater");
+        assertThat(jwtMessage.findRbelPathMembers("$..putLater")).isEmpty();
+    }
+
     private ListAppender<ILoggingEvent> listFollowingLoggingEventsForClass(Class<RbelPathExecutor> clazz) {
         Logger fooLogger = (Logger) LoggerFactory.getLogger(clazz);
         final ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
@@ -19,6 +19,7 @@ package de.gematik.rbellogger.data.util;
 import de.gematik.rbellogger.RbelLogger;
 import de.gematik.rbellogger.RbelOptions;
 import de.gematik.rbellogger.data.RbelElement;
+import de.gematik.rbellogger.data.facet.RbelNestedFacet;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -55,6 +56,36 @@ public class RbelElementTreePrinterTest {
             .contains("──" + expectedKeyInPrintedTree + " ");
     }
 
+    @Test
+    public void deeplyNestedElements_shouldBePrintedUpToMaximumLevels() {
+        final RbelElement root = new RbelElement("r".getBytes(), null);
+        RbelElement current = root;
+        for (int i = 0; i < 3_000; i++) {
+            final RbelElement child = new RbelElement("c".getBytes(), current);
+            current.addFacet(new RbelNestedFacet(child));
+            current = child;
+        }
+
+        final String[] allLines = RbelElementTreePrinter.builder()
+            .rootElement(root)
+            .printColors(false)
+            .build()
+            .execute().split("\n");
+        final String[] limitedLines = RbelElementTreePrinter.builder()
+            .rootElement(root)
+            .printColors(false)
+            .maximumLevels(2)
+            .build()
+            .execute().split("\n");
+
+        assertThat(allLines).hasSize(3_001);
+        assertThat(allLines[3_000]).endsWith("└──content (c)");
+        assertThat(limitedLines).containsExactly(
+            "└── (r)",
+            "   └──content (c)",
+            "      └──content (c)");
+    }
+
     private static RbelElement readAndConvertCurlMessage(String fileName, Function<String, String>... messageMappers) throws IOException {
         String curlMessage = readCurlFromFileWithCorrectedLineBreaks(fileName);
         for (Function<String, String> mapper : messageMappers) {
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2022 gematik GmbH
+ * 
+ * Licensed under the Apache License, Version 2.0 (the License);
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an 'AS IS' BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.gematik.rbellogger.util;
+
+import de.gematik.rbellogger.data.RbelElement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RbelMessageSearchTest {
+
+    private static List<RbelElement> buildMessages(int count) {
+        final List<RbelElement> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(new RbelElement(Integer.toString(i).getBytes(), null));
+        }
+        return messages;
+    }
+
+    @Test
+    public void matchesAcrossWindows_shouldBeReturnedInListOrder() {
+        final List<RbelElement> messages = buildMessages(20_000);
+        final List<RbelElement> expected = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i += 7) {
+            expected.add(messages.get(i));
+        }
+
+        assertThat(RbelMessageSearch.forPredicate(message -> Integer.parseInt(message.getRawStringContent()) % 7 == 0)
+            .findMatches(messages, Integer.MAX_VALUE))
+            .containsExactlyElementsOf(expected);
+        assertThat(RbelMessageSearch.forPredicate(message -> Integer.parseInt(message.getRawStringContent()) % 7 == 0)
+            .findMatches(messages, 100))
+            .containsExactlyElementsOf(expected.subList(0, 100));
+    }
+
+    @Test
+    public void searchWithLimit_shouldStopAfterTheWindowCompletingTheResult() {
+        final List<RbelElement> messages = buildMessages(200_000);
+        final AtomicInteger evaluations = new AtomicInteger();
+
+        assertThat(RbelMessageSearch.forPredicate(message -> {
+                evaluations.incrementAndGet();
+                return true;
+            })
+            .findMatches(messages, 3))
+            .containsExactlyElementsOf(messages.subList(0, 3));
+        assertThat(evaluations.get()).isLessThan(messages.size() / 2);
+    }
+
+    @Test
+    public void jexlAndRbelPathCriteria_shouldBeEvaluatedAgainstEachMessage() {
+        final List<RbelElement> messages = buildMessages(10);
+
+        assertThat(RbelMessageSearch.forJexlExpression("content == '4' || content == '7'")
+            .findMatches(messages, 10))
+            .containsExactly(messages.get(4), messages.get(7));
+        assertThat(RbelMessageSearch.forRbelPath("$.foo")
+            .findMatches(messages, 10))
+            .isEmpty();
+        assertThatThrownBy(() -> RbelMessageSearch.forRbelPath("$.foo").findMatches(messages, -1))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}